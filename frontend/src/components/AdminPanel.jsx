@@ -1,46 +1,67 @@
 import { useState, useEffect } from 'react'
 import axios from 'axios'
 
-const AdminPanel = ({ texts: propsTexts, onDelete }) => {
-  // Asegurar que siempre sea un array
-  const [texts, setTexts] = useState(Array.isArray(propsTexts) ? propsTexts : [])
+const PAGE_SIZE = 50
+
+const AdminPanel = ({ onDelete }) => {
+  const [texts, setTexts] = useState([])
+  const [nextCursor, setNextCursor] = useState(null)
   const [loading, setLoading] = useState(true) // Iniciar en true para mostrar loading
+  const [loadingMore, setLoadingMore] = useState(false)
+  // Los filtros se aplican en el servidor; la lista se pide por páginas
+  const [filters, setFilters] = useState({ username: '', title: '', from: '', to: '', sort: 'desc' })
+  // "Cargar más" sigue con los filtros de la última búsqueda, no con lo que se esté escribiendo
+  const [appliedFilters, setAppliedFilters] = useState(filters)
 
   useEffect(() => {
-    fetchAllTexts()
+    fetchTexts()
   }, [])
 
-  const fetchAllTexts = async () => {
+  const fetchTexts = async (cursor = null, criteria = appliedFilters) => {
     try {
-      setLoading(true)
+      cursor ? setLoadingMore(true) : setLoading(true)
+      const params = { limit: PAGE_SIZE, sort: criteria.sort }
+      if (criteria.username.trim()) params.username = criteria.username.trim()
+      if (criteria.title.trim()) params.title = criteria.title.trim()
+      if (criteria.from) params.from = criteria.from
+      if (criteria.to) params.to = criteria.to
+      if (cursor) params.cursor = cursor
       const response = await axios.get('/admin/texts', {
+        params,
         withCredentials: true
       })
-      // Asegurar que siempre sea un array
-      const data = response.data
-      if (Array.isArray(data)) {
-        setTexts(data)
-      } else {
-        console.warn('La respuesta no es un array:', data)
-        setTexts([])
-      }
+      const items = Array.isArray(response.data?.items) ? response.data.items : []
+      setTexts((current) => (cursor ? [...current, ...items] : items))
+      setNextCursor(response.data?.nextCursor || null)
     } catch (error) {
       console.error('Error fetching all texts:', error)
       if (error.response?.status === 403 || error.response?.status === 401) {
         console.warn('No tienes permisos de administrador')
       }
-      setTexts([]) // Asegurar que siempre sea un array
+      if (!cursor) {
+        setTexts([])
+        setNextCursor(null)
+      }
     } finally {
       setLoading(false)
+      setLoadingMore(false)
     }
   }
 
+  const handleFilterChange = (e) => {
+    setFilters({ ...filters, [e.target.name]: e.target.value })
+  }
+
+  const handleSearch = (e) => {
+    e.preventDefault()
+    setAppliedFilters(filters)
+    fetchTexts(null, filters)
+  }
+
   const handleDelete = async (id) => {
     try {
       await axios.delete(`/admin/texts/${id}`, { withCredentials: true })
-      // Asegurar que texts sea un array antes de filtrar
-      const currentTexts = Array.isArray(texts) ? texts : []
-      setTexts(currentTexts.filter((t) => t.id !== id))
+      setTexts((current) => current.filter((t) => t.id !== id))
       if (onDelete) {
         onDelete(id)
       }
@@ -54,27 +75,59 @@ const AdminPanel = ({ texts: propsTexts, onDelete }) => {
     }
   }
 
-  if (loading) {
-    return (
-      <div className="bg-gradient-to-br from-purple-900/40 to-blue-900/40 backdrop-blur-md rounded-xl border border-purple-500/30 p-12 text-center shadow-2xl">
-        <div className="animate-spin rounded-full h-12 w-12 border-b-2 border-purple-400 mx-auto mb-4"></div>
-        <div className="text-purple-300 text-lg">Cargando textos...</div>
-      </div>
-    )
-  }
-
-  // Asegurar que texts siempre sea un array antes de renderizar
-  const safeTexts = Array.isArray(texts) ? texts : []
-  
-  if (safeTexts.length === 0 && !loading) {
-    return (
-      <div className="bg-gradient-to-br from-purple-900/40 to-blue-900/40 backdrop-blur-md rounded-xl border border-purple-500/30 p-12 text-center shadow-2xl">
-        <div className="text-6xl mb-4">📝</div>
-        <h3 className="text-2xl font-bold text-white mb-2">No hay textos</h3>
-        <p className="text-purple-200">Aún no se han creado textos en el sistema</p>
-      </div>
-    )
-  }
+  const filterBar = (
+    <form onSubmit={handleSearch} className="p-4 border-b border-purple-500/30 flex flex-wrap items-end gap-3">
+      <input
+        name="username"
+        value={filters.username}
+        onChange={handleFilterChange}
+        placeholder="Usuario"
+        className="px-3 py-2 bg-purple-900/40 border border-purple-500/30 rounded-lg text-white text-sm placeholder-purple-300"
+      />
+      <input
+        name="title"
+        value={filters.title}
+        onChange={handleFilterChange}
+        placeholder="Título empieza por..."
+        className="px-3 py-2 bg-purple-900/40 border border-purple-500/30 rounded-lg text-white text-sm placeholder-purple-300"
+      />
+      <label className="text-xs text-purple-200 flex flex-col">
+        Desde
+        <input
+          type="date"
+          name="from"
+          value={filters.from}
+          onChange={handleFilterChange}
+          className="mt-1 px-3 py-2 bg-purple-900/40 border border-purple-500/30 rounded-lg text-white text-sm"
+        />
+      </label>
+      <label className="text-xs text-purple-200 flex flex-col">
+        Hasta
+        <input
+          type="date"
+          name="to"
+          value={filters.to}
+          onChange={handleFilterChange}
+          className="mt-1 px-3 py-2 bg-purple-900/40 border border-purple-500/30 rounded-lg text-white text-sm"
+        />
+      </label>
+      <select
+        name="sort"
+        value={filters.sort}
+        onChange={handleFilterChange}
+        className="px-3 py-2 bg-purple-900/40 border border-purple-500/30 rounded-lg text-white text-sm"
+      >
+        <option value="desc">Más recientes</option>
+        <option value="asc">Más antiguos</option>
+      </select>
+      <button
+        type="submit"
+        className="px-4 py-2 bg-purple-600 hover:bg-purple-500 text-white rounded-lg transition-colors text-sm"
+      >
+        🔍 Buscar
+      </button>
+    </form>
+  )
 
   return (
     <div className="bg-gradient-to-br from-purple-900/40 to-blue-900/40 backdrop-blur-md rounded-xl border border-purple-500/30 overflow-hidden shadow-2xl">
@@ -83,8 +136,24 @@ const AdminPanel = ({ texts: propsTexts, onDelete }) => {
           <span className="mr-3">📋</span>
           Todos los Textos (Administración)
         </h2>
-        <p className="text-purple-200 text-sm mt-1">Total: {safeTexts.length} textos</p>
+        <p className="text-purple-200 text-sm mt-1">
+          Mostrando: {texts.length} textos{nextCursor ? ' (hay más)' : ''}
+        </p>
       </div>
+      {filterBar}
+      {loading ? (
+        <div className="p-12 text-center">
+          <div className="animate-spin rounded-full h-12 w-12 border-b-2 border-purple-400 mx-auto mb-4"></div>
+          <div className="text-purple-300 text-lg">Cargando textos...</div>
+        </div>
+      ) : texts.length === 0 ? (
+        <div className="p-12 text-center">
+          <div className="text-6xl mb-4">📝</div>
+          <h3 className="text-2xl font-bold text-white mb-2">No hay textos</h3>
+          <p className="text-purple-200">No hay textos que coincidan con los filtros</p>
+        </div>
+      ) : (
+      <>
       <div className="overflow-x-auto">
         <table className="w-full">
           <thead className="bg-gradient-to-r from-purple-800/30 to-blue-800/30">
@@ -104,7 +173,7 @@ const AdminPanel = ({ texts: propsTexts, onDelete }) => {
             </tr>
           </thead>
           <tbody className="divide-y divide-purple-500/20">
-            {safeTexts.map((text) => (
+            {texts.map((text) => (
               <tr key={text.id} className="hover:bg-purple-500/10 transition-colors">
                 <td className="px-6 py-4">
                   <div className="text-sm font-medium text-white">
@@ -134,6 +203,19 @@ const AdminPanel = ({ texts: propsTexts, onDelete }) => {
           </tbody>
         </table>
       </div>
+      {nextCursor && (
+        <div className="p-4 text-center border-t border-purple-500/30">
+          <button
+            onClick={() => fetchTexts(nextCursor)}
+            disabled={loadingMore}
+            className="px-6 py-2 bg-purple-600 hover:bg-purple-500 text-white rounded-lg transition-colors disabled:opacity-50"
+          >
+            {loadingMore ? 'Cargando...' : 'Cargar más'}
+          </button>
+        </div>
+      )}
+      </>
+      )}
     </div>
   )
 }
@@ -1,49 +1,51 @@
 import { useState, useEffect } from 'react'
 import axios from 'axios'
 
+const PAGE_SIZE = 50
+
 const FileManagement = ({ onFileDeleted }) => {
   const [files, setFiles] = useState([])
+  const [nextCursor, setNextCursor] = useState(null)
   const [loading, setLoading] = useState(true)
+  const [loadingMore, setLoadingMore] = useState(false)
   const [deleting, setDeleting] = useState(null)
+  // Filtros aplicados en el servidor; con "huérfanos" el prefijo es el del nombre del fichero
+  const [filters, setFilters] = useState({ username: '', title: '', from: '', to: '', sort: 'desc', orphans: false })
+  // "Cargar más" sigue con los filtros de la última búsqueda
+  const [appliedFilters, setAppliedFilters] = useState(filters)
 
   useEffect(() => {
     fetchFiles()
   }, [])
 
-  const fetchFiles = async () => {
-    setLoading(true)
+  const fetchFiles = async (cursor = null, criteria = appliedFilters) => {
+    cursor ? setLoadingMore(true) : setLoading(true)
     try {
       console.log('📥 Solicitando archivos al servidor...')
-      // Solicitar información detallada
-      const response = await axios.get('/admin/files?detailed=true', {
+      const params = { limit: PAGE_SIZE, sort: criteria.sort }
+      if (criteria.orphans) params.orphans = true
+      else if (criteria.username.trim()) params.username = criteria.username.trim()
+      if (criteria.title.trim()) params.title = criteria.title.trim()
+      if (criteria.from) params.from = criteria.from
+      if (criteria.to) params.to = criteria.to
+      if (cursor) params.cursor = cursor
+      const response = await axios.get('/admin/files', {
+        params,
         withCredentials: true
       })
-      console.log('📤 Respuesta completa:', response)
-      console.log('📤 Status:', response.status)
-      console.log('📤 Data:', response.data)
-      console.log('📤 Data type:', typeof response.data)
-      console.log('📤 Is Array:', Array.isArray(response.data))
-      console.log('📤 Data length:', response.data?.length)
-      
-      // Asegurar que siempre sea un array
-      const data = response.data
-      if (Array.isArray(data)) {
-        console.log('✅ Archivos recibidos correctamente:', data.length)
-        data.forEach((file, index) => {
-          console.log(`  ${index + 1}. ${file.title || file.filename} - Usuario: ${file.username || 'N/A'}`)
-        })
-        setFiles(data)
-      } else {
-        console.error('❌ ERROR: La respuesta no es un array:', data)
-        console.error('Tipo de dato:', typeof data)
-        setFiles([])
-      }
+
+      const items = Array.isArray(response.data?.items) ? response.data.items : []
+      console.log('✅ Archivos recibidos correctamente:', items.length)
+      setFiles((current) => (cursor ? [...current, ...items] : items))
+      setNextCursor(response.data?.nextCursor || null)
     } catch (error) {
       console.error('❌ ERROR al obtener archivos:', error)
-      console.error('Error response:', error.response)
       console.error('Error status:', error.response?.status)
       console.error('Error data:', error.response?.data)
-      setFiles([]) // Asegurar que siempre sea un array
+      if (!cursor) {
+        setFiles([])
+        setNextCursor(null)
+      }
       if (error.response?.status === 403) {
         alert('Error: No tienes permisos para ver archivos. Asegúrate de estar logueado como ADMIN.')
       } else {
@@ -51,14 +53,23 @@ const FileManagement = ({ onFileDeleted }) => {
       }
     } finally {
       setLoading(false)
+      setLoadingMore(false)
     }
   }
 
+  const handleFilterChange = (e) => {
+    const { name, type, checked, value } = e.target
+    setFilters({ ...filters, [name]: type === 'checkbox' ? checked : value })
+  }
+
+  const handleSearch = (e) => {
+    e.preventDefault()
+    setAppliedFilters(filters)
+    fetchFiles(null, filters)
+  }
+
   const handleDelete = async (file) => {
-    const audioUrl = typeof file === 'string' ? file : file.audioUrl
-    const filename = typeof file === 'string' 
-      ? file.substring(file.lastIndexOf('/') + 1)
-      : file.filename
+    const { audioUrl, filename } = file
     const title = file.title || filename
     
     if (!window.confirm(`¿Estás seguro de que deseas eliminar el archivo "${title}"?\n\nArchivo: ${filename}\n\nEsta acción no se puede deshacer.`)) {
@@ -71,12 +82,7 @@ const FileManagement = ({ onFileDeleted }) => {
         params: { audioUrl },
         withCredentials: true
       })
-      // Asegurar que files sea un array antes de filtrar
-      const currentFiles = Array.isArray(files) ? files : []
-      setFiles(currentFiles.filter((f) => {
-        const fUrl = typeof f === 'string' ? f : f.audioUrl
-        return fUrl !== audioUrl
-      }))
+      setFiles((current) => current.filter((f) => f.audioUrl !== audioUrl))
       if (onFileDeleted) {
         onFileDeleted(audioUrl)
       }
@@ -112,27 +118,70 @@ const FileManagement = ({ onFileDeleted }) => {
     }
   }
 
-  // Asegurar que files siempre sea un array antes de renderizar
-  const safeFiles = Array.isArray(files) ? files : []
-
-  if (loading) {
-    return (
-      <div className="bg-gradient-to-br from-purple-900/40 to-blue-900/40 backdrop-blur-md rounded-xl border border-purple-500/30 p-12 text-center shadow-2xl">
-        <div className="animate-spin rounded-full h-12 w-12 border-b-2 border-purple-400 mx-auto mb-4"></div>
-        <div className="text-purple-300 text-lg">Cargando archivos...</div>
-      </div>
-    )
-  }
-
-  if (safeFiles.length === 0) {
-    return (
-      <div className="bg-gradient-to-br from-purple-900/40 to-blue-900/40 backdrop-blur-md rounded-xl border border-purple-500/30 p-12 text-center shadow-2xl">
-        <div className="text-6xl mb-4">📁</div>
-        <h3 className="text-2xl font-bold text-white mb-2">No hay archivos</h3>
-        <p className="text-purple-200">Aún no hay archivos de audio en el sistema</p>
-      </div>
-    )
-  }
+  const filterBar = (
+    <form onSubmit={handleSearch} className="p-4 border-b border-purple-500/30 flex flex-wrap items-end gap-3">
+      <input
+        name="username"
+        value={filters.username}
+        onChange={handleFilterChange}
+        disabled={filters.orphans}
+        placeholder="Usuario"
+        className="px-3 py-2 bg-purple-900/40 border border-purple-500/30 rounded-lg text-white text-sm placeholder-purple-300 disabled:opacity-50"
+      />
+      <input
+        name="title"
+        value={filters.title}
+        onChange={handleFilterChange}
+        placeholder={filters.orphans ? 'Archivo empieza por...' : 'Título empieza por...'}
+        className="px-3 py-2 bg-purple-900/40 border border-purple-500/30 rounded-lg text-white text-sm placeholder-purple-300"
+      />
+      <label className="text-xs text-purple-200 flex flex-col">
+        Desde
+        <input
+          type="date"
+          name="from"
+          value={filters.from}
+          onChange={handleFilterChange}
+          className="mt-1 px-3 py-2 bg-purple-900/40 border border-purple-500/30 rounded-lg text-white text-sm"
+        />
+      </label>
+      <label className="text-xs text-purple-200 flex flex-col">
+        Hasta
+        <input
+          type="date"
+          name="to"
+          value={filters.to}
+          onChange={handleFilterChange}
+          className="mt-1 px-3 py-2 bg-purple-900/40 border border-purple-500/30 rounded-lg text-white text-sm"
+        />
+      </label>
+      <select
+        name="sort"
+        value={filters.sort}
+        onChange={handleFilterChange}
+        className="px-3 py-2 bg-purple-900/40 border border-purple-500/30 rounded-lg text-white text-sm"
+      >
+        <option value="desc">Más recientes</option>
+        <option value="asc">Más antiguos</option>
+      </select>
+      <label className="text-sm text-purple-200 flex items-center py-2">
+        <input
+          type="checkbox"
+          name="orphans"
+          checked={filters.orphans}
+          onChange={handleFilterChange}
+          className="mr-2"
+        />
+        Solo huérfanos
+      </label>
+      <button
+        type="submit"
+        className="px-4 py-2 bg-purple-600 hover:bg-purple-500 text-white rounded-lg transition-colors text-sm"
+      >
+        🔍 Buscar
+      </button>
+    </form>
+  )
 
   return (
     <div className="bg-gradient-to-br from-purple-900/40 to-blue-900/40 backdrop-blur-md rounded-xl border border-purple-500/30 overflow-hidden shadow-2xl">
@@ -141,8 +190,24 @@ const FileManagement = ({ onFileDeleted }) => {
           <span className="mr-3">📁</span>
           Gestión de Archivos de Audio
         </h2>
-        <p className="text-purple-200 text-sm mt-1">Total: {safeFiles.length} archivos</p>
+        <p className="text-purple-200 text-sm mt-1">
+          Mostrando: {files.length} archivos{nextCursor ? ' (hay más)' : ''}
+        </p>
       </div>
+      {filterBar}
+      {loading ? (
+        <div className="p-12 text-center">
+          <div className="animate-spin rounded-full h-12 w-12 border-b-2 border-purple-400 mx-auto mb-4"></div>
+          <div className="text-purple-300 text-lg">Cargando archivos...</div>
+        </div>
+      ) : files.length === 0 ? (
+        <div className="p-12 text-center">
+          <div className="text-6xl mb-4">📁</div>
+          <h3 className="text-2xl font-bold text-white mb-2">No hay archivos</h3>
+          <p className="text-purple-200">No hay archivos de audio que coincidan con los filtros</p>
+        </div>
+      ) : (
+      <>
       <div className="overflow-x-auto">
         <table className="w-full">
           <thead className="bg-gradient-to-r from-purple-800/30 to-blue-800/30">
@@ -165,17 +230,8 @@ const FileManagement = ({ onFileDeleted }) => {
             </tr>
           </thead>
           <tbody className="divide-y divide-purple-500/20">
-            {safeFiles.map((file) => {
-              // Compatibilidad: puede ser string (URL) u objeto (AudioFileInfo)
-              const isString = typeof file === 'string'
-              const audioUrl = isString ? file : file.audioUrl
-              const filename = isString 
-                ? file.substring(file.lastIndexOf('/') + 1)
-                : file.filename
-              const title = isString ? null : file.title
-              const username = isString ? null : file.username
-              const createdAt = isString ? null : file.createdAt
-              const fileSize = isString ? null : file.fileSize
+            {files.map((file) => {
+              const { audioUrl, filename, title, username, createdAt, fileSize } = file
               
               return (
                 <tr key={audioUrl} className="hover:bg-purple-500/10 transition-colors">
@@ -242,6 +298,19 @@ const FileManagement = ({ onFileDeleted }) => {
           </tbody>
         </table>
       </div>
+      {nextCursor && (
+        <div className="p-4 text-center border-t border-purple-500/30">
+          <button
+            onClick={() => fetchFiles(nextCursor)}
+            disabled={loadingMore}
+            className="px-6 py-2 bg-purple-600 hover:bg-purple-500 text-white rounded-lg transition-colors disabled:opacity-50"
+          >
+            {loadingMore ? 'Cargando...' : 'Cargar más'}
+          </button>
+        </div>
+      )}
+      </>
+      )}
     </div>
   )
 }
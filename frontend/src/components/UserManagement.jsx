@@ -1,20 +1,31 @@
 import { useState, useEffect } from 'react'
 import axios from 'axios'
 
+const PAGE_SIZE = 50
+
 const UserManagement = ({ onUserDeleted }) => {
   const [users, setUsers] = useState([])
+  const [nextCursor, setNextCursor] = useState(null)
   const [loading, setLoading] = useState(true)
+  const [loadingMore, setLoadingMore] = useState(false)
   const [deleting, setDeleting] = useState(null)
+  // Prefijo del nombre de usuario, aplicado en el servidor
+  const [search, setSearch] = useState('')
+  const [appliedSearch, setAppliedSearch] = useState('')
 
   useEffect(() => {
     fetchUsers()
   }, [])
 
-  const fetchUsers = async () => {
-    setLoading(true)
+  const fetchUsers = async (cursor = null, username = appliedSearch) => {
+    cursor ? setLoadingMore(true) : setLoading(true)
     try {
       console.log('📥 Solicitando usuarios al servidor...')
+      const params = { limit: PAGE_SIZE }
+      if (username.trim()) params.username = username.trim()
+      if (cursor) params.cursor = cursor
       const response = await axios.get('/admin/users', {
+        params,
         withCredentials: true,
         headers: {
           'Content-Type': 'application/json',
@@ -31,29 +42,10 @@ const UserManagement = ({ onUserDeleted }) => {
         return
       }
       
-      console.log('📤 Respuesta completa:', response)
-      console.log('📤 Status:', response.status)
-      console.log('📤 Data:', response.data)
-      console.log('📤 Data type:', typeof response.data)
-      console.log('📤 Is Array:', Array.isArray(response.data))
-      console.log('📤 Data length:', response.data?.length)
-      
-      // Asegurar que siempre sea un array
-      const data = response.data
-      if (Array.isArray(data)) {
-        console.log('✅ Usuarios recibidos correctamente:', data.length)
-        data.forEach((user, index) => {
-          console.log(`  ${index + 1}. ID: ${user.id}, Username: ${user.username}, Email: ${user.email}, Rol: ${user.role}`)
-        })
-        setUsers(data)
-      } else {
-        console.error('❌ ERROR: La respuesta no es un array:', data)
-        console.error('Tipo de dato:', typeof data)
-        setUsers([])
-        if (data && typeof data === 'object') {
-          console.error('Contenido de la respuesta:', JSON.stringify(data, null, 2))
-        }
-      }
+      const items = Array.isArray(response.data?.items) ? response.data.items : []
+      console.log('✅ Usuarios recibidos correctamente:', items.length)
+      setUsers((current) => (cursor ? [...current, ...items] : items))
+      setNextCursor(response.data?.nextCursor || null)
     } catch (error) {
       console.error('❌ ERROR al obtener usuarios:', error)
       console.error('Error response:', error.response)
@@ -69,12 +61,22 @@ const UserManagement = ({ onUserDeleted }) => {
         alert('Error al cargar usuarios: ' + (error.response?.data?.message || error.message))
       }
       
-      setUsers([]) // Asegurar que siempre sea un array
+      if (!cursor) {
+        setUsers([])
+        setNextCursor(null)
+      }
     } finally {
       setLoading(false)
+      setLoadingMore(false)
     }
   }
 
+  const handleSearch = (e) => {
+    e.preventDefault()
+    setAppliedSearch(search)
+    fetchUsers(null, search)
+  }
+
   const handleDelete = async (userId, username) => {
     if (!window.confirm(`¿Estás seguro de que deseas eliminar al usuario "${username}"? Esta acción no se puede deshacer.`)) {
       return
@@ -83,9 +85,7 @@ const UserManagement = ({ onUserDeleted }) => {
     setDeleting(userId)
     try {
       await axios.delete(`/admin/users/${userId}`, { withCredentials: true })
-      // Asegurar que users sea un array antes de filtrar
-      const currentUsers = Array.isArray(users) ? users : []
-      setUsers(currentUsers.filter((u) => u.id !== userId))
+      setUsers((current) => current.filter((u) => u.id !== userId))
       if (onUserDeleted) {
         onUserDeleted(userId)
       }
@@ -97,28 +97,6 @@ const UserManagement = ({ onUserDeleted }) => {
     }
   }
 
-  // Asegurar que users siempre sea un array antes de renderizar
-  const safeUsers = Array.isArray(users) ? users : []
-
-  if (loading) {
-    return (
-      <div className="bg-gradient-to-br from-purple-900/40 to-blue-900/40 backdrop-blur-md rounded-xl border border-purple-500/30 p-12 text-center shadow-2xl">
-        <div className="animate-spin rounded-full h-12 w-12 border-b-2 border-purple-400 mx-auto mb-4"></div>
-        <div className="text-purple-300 text-lg">Cargando usuarios...</div>
-      </div>
-    )
-  }
-
-  if (safeUsers.length === 0) {
-    return (
-      <div className="bg-gradient-to-br from-purple-900/40 to-blue-900/40 backdrop-blur-md rounded-xl border border-purple-500/30 p-12 text-center shadow-2xl">
-        <div className="text-6xl mb-4">👥</div>
-        <h3 className="text-2xl font-bold text-white mb-2">No hay usuarios</h3>
-        <p className="text-purple-200">Aún no hay usuarios registrados en el sistema</p>
-      </div>
-    )
-  }
-
   return (
     <div className="bg-gradient-to-br from-purple-900/40 to-blue-900/40 backdrop-blur-md rounded-xl border border-purple-500/30 overflow-hidden shadow-2xl">
       <div className="p-6 border-b border-purple-500/30 bg-gradient-to-r from-purple-600/20 to-blue-600/20">
@@ -128,17 +106,40 @@ const UserManagement = ({ onUserDeleted }) => {
               <span className="mr-3">👥</span>
               Gestión de Usuarios
             </h2>
-            <p className="text-purple-200 text-sm mt-1">Total: {safeUsers.length} usuarios</p>
+            <p className="text-purple-200 text-sm mt-1">
+              Mostrando: {users.length} usuarios{nextCursor ? ' (hay más)' : ''}
+            </p>
           </div>
-          <button
-            onClick={fetchUsers}
-            className="px-4 py-2 bg-purple-600 hover:bg-purple-500 text-white rounded-lg transition-colors flex items-center"
-          >
-            <span className="mr-2">🔄</span>
-            Recargar
-          </button>
+          <form onSubmit={handleSearch} className="flex items-center gap-3">
+            <input
+              value={search}
+              onChange={(e) => setSearch(e.target.value)}
+              placeholder="Usuario empieza por..."
+              className="px-3 py-2 bg-purple-900/40 border border-purple-500/30 rounded-lg text-white text-sm placeholder-purple-300"
+            />
+            <button
+              type="submit"
+              className="px-4 py-2 bg-purple-600 hover:bg-purple-500 text-white rounded-lg transition-colors flex items-center"
+            >
+              <span className="mr-2">🔄</span>
+              Buscar
+            </button>
+          </form>
         </div>
       </div>
+      {loading ? (
+        <div className="p-12 text-center">
+          <div className="animate-spin rounded-full h-12 w-12 border-b-2 border-purple-400 mx-auto mb-4"></div>
+          <div className="text-purple-300 text-lg">Cargando usuarios...</div>
+        </div>
+      ) : users.length === 0 ? (
+        <div className="p-12 text-center">
+          <div className="text-6xl mb-4">👥</div>
+          <h3 className="text-2xl font-bold text-white mb-2">No hay usuarios</h3>
+          <p className="text-purple-200">No hay usuarios que coincidan con la búsqueda</p>
+        </div>
+      ) : (
+      <>
       <div className="overflow-x-auto">
         <table className="w-full">
           <thead className="bg-gradient-to-r from-purple-800/30 to-blue-800/30">
@@ -167,7 +168,7 @@ const UserManagement = ({ onUserDeleted }) => {
             </tr>
           </thead>
           <tbody className="divide-y divide-purple-500/20">
-            {safeUsers.map((user) => (
+            {users.map((user) => (
               <tr key={user.id} className="hover:bg-purple-500/10 transition-colors">
                 <td className="px-6 py-4 whitespace-nowrap text-sm text-purple-200">
                   #{user.id}
@@ -215,6 +216,19 @@ const UserManagement = ({ onUserDeleted }) => {
           </tbody>
         </table>
       </div>
+      {nextCursor && (
+        <div className="p-4 text-center border-t border-purple-500/30">
+          <button
+            onClick={() => fetchUsers(nextCursor)}
+            disabled={loadingMore}
+            className="px-6 py-2 bg-purple-600 hover:bg-purple-500 text-white rounded-lg transition-colors disabled:opacity-50"
+          >
+            {loadingMore ? 'Cargando...' : 'Cargar más'}
+          </button>
+        </div>
+      )}
+      </>
+      )}
     </div>
   )
 }
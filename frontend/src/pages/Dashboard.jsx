@@ -130,7 +130,7 @@ const Dashboard = () => {
     try {
       setAdminLoading(true)
       const response = await axios.get('/admin/texts', { withCredentials: true })
-      setAdminTexts(response.data || [])
+      setAdminTexts(response.data?.items || [])
     } catch (error) {
       console.error('Error fetching admin texts:', error)
       if (error.response?.status === 403 || error.response?.status === 401) {
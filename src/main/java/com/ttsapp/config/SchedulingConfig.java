@@ -0,0 +1,12 @@
+package com.ttsapp.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} background tasks such as the orphaned audio sweeper.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
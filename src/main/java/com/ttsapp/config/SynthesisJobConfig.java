@@ -0,0 +1,46 @@
+package com.ttsapp.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class SynthesisJobConfig {
+
+    /**
+     * Bounded worker pool for asynchronous synthesis jobs.
+     * When the queue is full new jobs are rejected instead of piling up in memory.
+     * With virtual threads enabled the workers are virtual threads, so a job blocked
+     * on the upstream does not hold a platform thread.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor synthesisJobExecutor(@Value("${tts.jobs.workers:4}") int workers,
+                                                       @Value("${tts.jobs.queue-capacity:100}") int queueCapacity,
+                                                       @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("synthesis-job-");
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name("synthesis-job-", 1).factory());
+        }
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Threads for the items of POST /api/texts/batch. Each item blocks while it waits for a
+     * synthesis permit and then for its audio, so they always run on virtual threads: waiting
+     * holds no platform thread and cannot starve the shared Reactor schedulers.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService batchSynthesisExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("batch-synthesis-", 1).factory());
+    }
+}
@@ -1,19 +1,38 @@
 package com.ttsapp.controller;
 
+import com.ttsapp.config.VirtualThreadPinningMonitor;
+import com.ttsapp.dto.AdminListParams;
+import com.ttsapp.dto.AdminListQuery;
+import com.ttsapp.dto.AudioFileInfo;
+import com.ttsapp.dto.CursorPage;
 import com.ttsapp.dto.TextEntryResponse;
 import com.ttsapp.dto.UserResponse;
 import com.ttsapp.exception.UserNotFoundException;
+import com.ttsapp.service.AudioFileIndex;
+import com.ttsapp.service.AudioGarbageCollector;
+import com.ttsapp.service.ChunkAudioCache;
+import com.ttsapp.service.HotAudioCache;
+import com.ttsapp.service.SharedAudioService;
+import com.ttsapp.service.SpeakResponseCache;
+import com.ttsapp.service.SynthesisJobService;
+import com.ttsapp.service.SynthesisScheduler;
+import com.ttsapp.service.TextEntryBatchService;
+import com.ttsapp.service.UpstreamCallPolicy;
+import com.ttsapp.service.UpstreamRateLimiter;
+import com.ttsapp.service.UserCharacterQuota;
 import com.ttsapp.service.TextEntryService;
 import com.ttsapp.service.TtsService;
 import com.ttsapp.service.UserCommandService;
 import com.ttsapp.service.UserQueryService;
+import com.ttsapp.service.storage.AudioStorageMigrator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,17 +47,37 @@ public class AdminController {
     private final UserQueryService userQueryService;
     private final UserCommandService userCommandService;
     private final TtsService ttsService;
+    private final ChunkAudioCache chunkAudioCache;
+    private final SpeakResponseCache speakResponseCache;
+    private final SynthesisJobService synthesisJobService;
+    private final UpstreamRateLimiter upstreamRateLimiter;
+    private final UpstreamCallPolicy upstreamCallPolicy;
+    private final SharedAudioService sharedAudioService;
+    private final AudioGarbageCollector audioGarbageCollector;
+    private final TextEntryBatchService textEntryBatchService;
+    private final SynthesisScheduler synthesisScheduler;
+    private final UserCharacterQuota userCharacterQuota;
+    private final HotAudioCache hotAudioCache;
+    private final AudioStorageMigrator audioStorageMigrator;
+    private final AudioFileIndex audioFileIndex;
+    private final ObjectProvider<VirtualThreadPinningMonitor> pinningMonitor;
     
+    // Tamaño de página de los listados por defecto y máximo que se puede pedir
+    @Value("${tts.admin.page-size:50}")
+    private int defaultPageSize;
+    @Value("${tts.admin.max-page-size:200}")
+    private int maxPageSize;
+    
+    /**
+     * Texts of every user, a page at a time, newest first unless sort=asc.
+     */
     @GetMapping("/texts")
-    public ResponseEntity<List<TextEntryResponse>> getAllTexts() {
-        try {
-            List<TextEntryResponse> texts = textEntryService.getAllTextEntries();
-            return ResponseEntity.ok(texts != null ? texts : Collections.emptyList());
-        } catch (Exception e) {
-            log.error("Error fetching all texts for admin", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Collections.emptyList());
+    public ResponseEntity<CursorPage<TextEntryResponse>> getAllTexts(AdminListParams params) {
+        AdminListQuery query = toQuery(params, params.getTitle(), true);
+        if (query == null) {
+            return ResponseEntity.ok(new CursorPage<>(List.of(), null));
         }
+        return ResponseEntity.ok(textEntryService.getTextEntriesPage(query));
     }
     
     @DeleteMapping("/texts/{id}")
@@ -52,32 +91,12 @@ public class AdminController {
         }
     }
 
+    /**
+     * Users, a page at a time; username filters by prefix.
+     */
     @GetMapping("/users")
-    public ResponseEntity<List<UserResponse>> getAllUsers() {
-        try {
-            log.debug("=== AdminController.getAllUsers() ===");
-            
-            // Get count first for logging
-            long countBefore = userQueryService.getUserCount();
-            log.debug("Total users in DB (count): {}", countBefore);
-            
-            // Get all users using query service
-            List<UserResponse> users = userQueryService.getAllUsers();
-            log.debug("Users retrieved: {}", users != null ? users.size() : 0);
-            
-            if (users != null && !users.isEmpty()) {
-                log.info("Successfully retrieved {} users for admin", users.size());
-            } else {
-                log.warn("No users found. Count in DB: {}", countBefore);
-            }
-            
-            return ResponseEntity.ok(users != null ? users : Collections.emptyList());
-            
-        } catch (Exception e) {
-            log.error("Error fetching all users for admin", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Collections.emptyList());
-        }
+    public ResponseEntity<CursorPage<UserResponse>> getAllUsers(AdminListParams params) {
+        return ResponseEntity.ok(userQueryService.getUsersPage(toQuery(params, params.getUsername(), false)));
     }
 
     @DeleteMapping("/users/{id}")
@@ -94,42 +113,21 @@ public class AdminController {
         }
     }
 
+    /**
+     * Audio files of the texts, a page at a time, or with orphans=true the indexed files no
+     * text references (title then filters by file name prefix).
+     */
     @GetMapping("/files")
-    public ResponseEntity<?> getAllAudioFiles(@RequestParam(required = false, defaultValue = "false") boolean detailed) {
-        try {
-            log.info("=== AdminController.getAllAudioFiles() ===");
-            log.info("Detailed parameter: {}", detailed);
-            
-            if (detailed) {
-                // Retornar información detallada
-                log.info("Fetching detailed audio files info...");
-                var files = ttsService.getAllAudioFilesWithInfo();
-                log.info("Files found: {}", files != null ? files.size() : 0);
-                
-                if (files != null && !files.isEmpty()) {
-                    log.info("Successfully retrieved {} audio files with info", files.size());
-                    files.forEach(file -> {
-                        log.debug("File: {} - Title: {} - User: {}", 
-                            file.getFilename(), file.getTitle(), file.getUsername());
-                    });
-                } else {
-                    log.warn("No audio files found with detailed info");
-                }
-                
-                return ResponseEntity.ok(files != null ? files : Collections.emptyList());
-            } else {
-                // Retornar solo URLs (compatibilidad hacia atrás)
-                log.info("Fetching simple audio files list...");
-                List<String> files = ttsService.getAllAudioFiles();
-                log.info("Files found: {}", files != null ? files.size() : 0);
-                return ResponseEntity.ok(files != null ? files : Collections.emptyList());
-            }
-        } catch (Exception e) {
-            log.error("Error fetching all audio files for admin", e);
-            e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Collections.emptyList());
+    public ResponseEntity<CursorPage<AudioFileInfo>> getAllAudioFiles(AdminListParams params,
+                                                                      @RequestParam(defaultValue = "false") boolean orphans) {
+        if (orphans) {
+            return ResponseEntity.ok(audioFileIndex.getOrphanFilesPage(toQuery(params, params.getTitle(), false)));
         }
+        AdminListQuery query = toQuery(params, params.getTitle(), true);
+        if (query == null) {
+            return ResponseEntity.ok(new CursorPage<>(List.of(), null));
+        }
+        return ResponseEntity.ok(audioFileIndex.getFilesPage(query));
     }
     
     @GetMapping("/users/debug")
@@ -193,5 +191,57 @@ public class AdminController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
-}
 
+    @PostMapping("/audio/gc")
+    public ResponseEntity<Map<String, Object>> collectOrphanedAudio() {
+        return ResponseEntity.ok(audioGarbageCollector.sweep());
+    }
+
+    @PostMapping("/audio/storage/migrate")
+    public ResponseEntity<Map<String, Object>> migrateAudioStorage() {
+        return ResponseEntity.ok(audioStorageMigrator.migrateBatch());
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("chunkCache", chunkAudioCache.getStats());
+        stats.put("speakCache", speakResponseCache.getStats());
+        stats.put("inFlight", ttsService.getInFlightStats());
+        stats.put("jobs", synthesisJobService.getStats());
+        stats.put("upstreamRate", upstreamRateLimiter.getStats());
+        stats.put("upstreamCalls", upstreamCallPolicy.getStats());
+        stats.put("sharedAudio", sharedAudioService.getStats());
+        stats.put("audioGc", audioGarbageCollector.getStats());
+        stats.put("batch", textEntryBatchService.getStats());
+        stats.put("scheduler", synthesisScheduler.getStats());
+        stats.put("quota", userCharacterQuota.getStats());
+        stats.put("hotAudio", hotAudioCache.getStats());
+        stats.put("storageMigration", audioStorageMigrator.getStats());
+        stats.put("audioIndex", audioFileIndex.getStats());
+        pinningMonitor.ifAvailable(monitor -> stats.put("virtualThreadPinning", monitor.getStats()));
+        return ResponseEntity.ok(stats);
+    }
+
+    // Filtros de un listado; null si se filtra por un usuario que no existe
+    private AdminListQuery toQuery(AdminListParams params, String prefix, boolean byUser) {
+        Long userId = byUser ? params.getUserId() : null;
+        if (byUser && userId == null && params.getUsername() != null && !params.getUsername().isBlank()) {
+            var user = userQueryService.getUserByUsername(params.getUsername().trim());
+            if (user == null) {
+                return null;
+            }
+            userId = user.getId();
+        }
+        int limit = params.getLimit() != null ? params.getLimit() : defaultPageSize;
+        return AdminListQuery.builder()
+                .userId(userId)
+                .from(params.getFrom() != null ? params.getFrom().atStartOfDay() : null)
+                .to(params.getTo() != null ? params.getTo().plusDays(1).atStartOfDay() : null)
+                .prefix(prefix != null ? prefix.trim() : null)
+                .ascending("asc".equalsIgnoreCase(params.getSort()))
+                .after(CursorPage.decode(params.getCursor()))
+                .limit(Math.max(1, Math.min(limit, maxPageSize)))
+                .build();
+    }
+}
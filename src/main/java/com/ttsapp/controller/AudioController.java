@@ -1,55 +1,298 @@
 package com.ttsapp.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import com.ttsapp.service.HotAudioCache;
+import com.ttsapp.service.storage.AudioStorage;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Serves the generated audio files. Files get a UUID name when written and never change
+ * afterwards, so responses carry a strong ETag and may be cached forever: a repeat play is
+ * a 304. Bodies are sent with the container's sendfile when it supports it, or else with
+ * {@link FileChannel#transferTo}, so file data is not copied through the Java heap.
+ * Single and multiple byte ranges are supported for seeking. The most played files are
+ * served from memory-mapped buffers kept by {@link HotAudioCache}.
+ */
 @RestController
 @RequestMapping("/uploads")
+@RequiredArgsConstructor
 @Slf4j
 public class AudioController {
 
-    private static final String UPLOAD_DIR = "uploads/audio";
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final MediaType DEFAULT_TYPE = MediaType.parseMediaType("audio/mpeg");
+
+    // Atributos de Tomcat para enviar el fichero con sendfile al terminar la petición
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Tipo de contenido por extensión; probeContentType solo se consulta una vez por extensión
+    private final ConcurrentHashMap<String, MediaType> contentTypes = new ConcurrentHashMap<>();
+    private final HotAudioCache hotAudioCache;
+    private final AudioStorage audioStorage;
 
     @GetMapping("/audio/{filename:.+}")
-    public ResponseEntity<Resource> getAudioFile(@PathVariable String filename) {
+    public void getAudioFile(@PathVariable String filename, HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        // locate solo acepta nombres que, resueltos y normalizados, quedan dentro del almacén
+        Path filePath = audioStorage.locate(filename);
+        BasicFileAttributes attributes;
         try {
-            Path filePath = Paths.get(UPLOAD_DIR, filename);
-            File file = filePath.toFile();
+            if (filePath == null) {
+                throw new NoSuchFileException(filename);
+            }
+            attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                throw new NoSuchFileException(filename);
+            }
+        } catch (IOException e) {
+            log.warn("Audio file not found: {}", filename);
+            hotAudioCache.invalidate(filename);
+            // setStatus y no sendError: el reenvío a /error exigiría autenticación
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        MediaType contentType = contentType(filePath);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filePath.getFileName() + "\"");
+
+        List<HttpRange> ranges;
+        try {
+            ranges = rangesToServe(request, etag, lastModified, length);
+        } catch (IllegalArgumentException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            return;
+        }
+        boolean head = "HEAD".equals(request.getMethod());
+        ByteBuffer cached = head ? null : hotAudioCache.get(filePath, length, lastModified);
 
-            if (!file.exists() || !file.isFile()) {
-                log.warn("Audio file not found: {}", filename);
-                return ResponseEntity.notFound().build();
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType.toString());
+            response.setContentLengthLong(length);
+            if (!head) {
+                send(request, response, filePath, cached, 0, length);
             }
+            return;
+        }
 
-            Resource resource = new FileSystemResource(file);
-            String contentType = Files.probeContentType(filePath);
-            
-            if (contentType == null || !contentType.startsWith("audio/")) {
-                contentType = "audio/mpeg";
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            long start = ranges.get(0).getRangeStart(length);
+            long end = ranges.get(0).getRangeEnd(length);
+            response.setContentType(contentType.toString());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            if (!head) {
+                send(request, response, filePath, cached, start, end + 1);
             }
+            return;
+        }
 
-            log.debug("Serving audio file: {} with content-type: {}", filename, contentType);
+        // Varios rangos: multipart/byteranges, cada parte con sus propias cabeceras
+        String boundary = UUID.randomUUID().toString();
+        long[][] bounds = new long[ranges.size()][];
+        byte[][] partHeaders = new byte[ranges.size()][];
+        long contentLength = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            long start = ranges.get(i).getRangeStart(length);
+            long end = ranges.get(i).getRangeEnd(length);
+            bounds[i] = new long[] {start, end};
+            partHeaders[i] = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + "/" + length + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            contentLength += partHeaders[i].length + end - start + 1;
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
-                    .body(resource);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (head) {
+            return;
+        }
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        if (cached != null) {
+            for (int i = 0; i < bounds.length; i++) {
+                out.write(partHeaders[i]);
+                write(cached, bounds[i][0], bounds[i][1] + 1, target);
+            }
+            out.write(closing);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            for (int i = 0; i < bounds.length; i++) {
+                out.write(partHeaders[i]);
+                transfer(channel, bounds[i][0], bounds[i][1] + 1, target);
+            }
+            out.write(closing);
+        }
+    }
 
-        } catch (Exception e) {
-            log.error("Error serving audio file: {}", filename, e);
-            return ResponseEntity.internalServerError().build();
+    // If-None-Match manda sobre If-Modified-Since (RFC 9110, 13.2.2)
+    private static boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        try {
+            long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
         }
     }
-}
 
+    // Rangos pedidos; vacío si hay que devolver el fichero entero
+    private static List<HttpRange> rangesToServe(HttpServletRequest request, String etag, long lastModified,
+                                                 long length) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return List.of();
+        }
+        // If-Range que no coincide: el cliente tiene otra versión y recibe el fichero completo
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            try {
+                if (ifRange.startsWith("\"") || ifRange.startsWith("W/")
+                        || lastModified / 1000 > request.getDateHeader(HttpHeaders.IF_RANGE) / 1000) {
+                    return List.of();
+                }
+            } catch (IllegalArgumentException e) {
+                return List.of();
+            }
+        }
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // Cabecera mal formada: se ignora, como indica RFC 9110
+            return List.of();
+        }
+        // Los rangos fuera del fichero se descartan; solo si no queda ninguno se responde 416
+        List<HttpRange> satisfiable = new ArrayList<>(ranges.size());
+        long total = 0;
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            if (start < length && end >= start) {
+                satisfiable.add(range);
+                total += end - start + 1;
+            }
+        }
+        if (satisfiable.isEmpty()) {
+            throw new IllegalArgumentException("Range not satisfiable: " + rangeHeader);
+        }
+        // Muchos rangos solapados servirían más bytes que el propio fichero
+        if (satisfiable.size() > 1 && total > length) {
+            throw new IllegalArgumentException("Ranges exceed the file length");
+        }
+        return satisfiable;
+    }
+
+    // Envía [start, end) del fichero sin pasar los datos por el heap: desde memoria si está en la
+    // caché de ficheros populares, si no con sendfile o transferTo
+    private static void send(HttpServletRequest request, HttpServletResponse response, Path file,
+                             ByteBuffer cached, long start, long end) throws IOException {
+        if (cached != null) {
+            write(cached, start, end, Channels.newChannel(response.getOutputStream()));
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            transfer(channel, start, end, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    private static void transfer(FileChannel channel, long start, long end, WritableByteChannel target)
+            throws IOException {
+        long position = start;
+        while (position < end) {
+            long sent = channel.transferTo(position, end - position, target);
+            if (sent <= 0) {
+                throw new IOException("Audio file truncated while sending");
+            }
+            position += sent;
+        }
+    }
+
+    private static void write(ByteBuffer buffer, long start, long end, WritableByteChannel target)
+            throws IOException {
+        ByteBuffer slice = buffer.slice((int) start, (int) (end - start));
+        while (slice.hasRemaining()) {
+            target.write(slice);
+        }
+    }
+
+    private MediaType contentType(Path filePath) {
+        String name = filePath.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String extension = dot >= 0 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+        return contentTypes.computeIfAbsent(extension, key -> {
+            try {
+                String probed = Files.probeContentType(filePath);
+                if (probed != null && probed.startsWith("audio/")) {
+                    return MediaType.parseMediaType(probed);
+                }
+            } catch (IOException e) {
+                log.debug("Could not probe content type of {}", name, e);
+            }
+            return DEFAULT_TYPE;
+        });
+    }
+}
@@ -1,8 +1,12 @@
 package com.ttsapp.controller;
 
+import com.ttsapp.dto.SynthesisJobResponse;
+import com.ttsapp.dto.TextEntryBatchResult;
 import com.ttsapp.dto.TextEntryRequest;
 import com.ttsapp.dto.TextEntryResponse;
+import com.ttsapp.entity.TextEntry;
 import com.ttsapp.service.FileTextExtractorService;
+import com.ttsapp.service.TextEntryBatchService;
 import com.ttsapp.service.TextEntryService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -11,6 +15,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -20,6 +25,7 @@ public class TextEntryController {
     
     private final TextEntryService textEntryService;
     private final FileTextExtractorService fileTextExtractorService;
+    private final TextEntryBatchService textEntryBatchService;
     
     @GetMapping
     public ResponseEntity<List<TextEntryResponse>> getMyTexts() {
@@ -28,8 +34,13 @@ public class TextEntryController {
     
     @PostMapping
     public ResponseEntity<TextEntryResponse> createText(@Valid @RequestBody TextEntryRequest request) {
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(textEntryService.createTextEntry(request));
+        return createdOrAccepted(textEntryService.createTextEntry(request));
+    }
+
+    // Cada elemento se valida por separado: los inválidos se devuelven con su error sin anular el resto
+    @PostMapping("/batch")
+    public ResponseEntity<List<TextEntryBatchResult>> createTexts(@RequestBody List<TextEntryRequest> requests) {
+        return ResponseEntity.ok(textEntryBatchService.createTextEntries(requests));
     }
 
     @PostMapping("/upload")
@@ -78,7 +89,7 @@ public class TextEntryController {
         System.out.println("Entrada creada - ID: " + response.getId() + ", audioUrl: " + response.getAudioUrl());
         System.out.println("=== FIN uploadFile ===");
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        return createdOrAccepted(response);
     }
     
     @GetMapping("/{id}")
@@ -86,6 +97,11 @@ public class TextEntryController {
         return ResponseEntity.ok(textEntryService.getTextEntry(id));
     }
     
+    @GetMapping("/{id}/status")
+    public ResponseEntity<SynthesisJobResponse> getJobStatus(@PathVariable Long id) {
+        return ResponseEntity.ok(textEntryService.getJobStatus(id));
+    }
+    
     @PutMapping(value = "/{id}", consumes = "application/json", produces = "application/json")
     public ResponseEntity<TextEntryResponse> updateText(
             @PathVariable Long id,
@@ -118,5 +134,14 @@ public class TextEntryController {
         textEntryService.deleteTextEntry(id);
         return ResponseEntity.noContent().build();
     }
+    
+    // En modo asíncrono el audio aún no existe: 202 con la URL de estado del trabajo
+    private ResponseEntity<TextEntryResponse> createdOrAccepted(TextEntryResponse response) {
+        if (TextEntry.AudioStatus.PENDING.name().equals(response.getStatus())) {
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/texts/" + response.getId() + "/status"))
+                    .body(response);
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
 }
-
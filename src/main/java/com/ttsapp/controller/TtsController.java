@@ -1,11 +1,20 @@
 package com.ttsapp.controller;
 
+import com.ttsapp.service.SpeakResponseCache;
 import com.ttsapp.service.TtsService;
+import com.ttsapp.service.UserCharacterQuota;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/tts")
@@ -13,13 +22,21 @@ import org.springframework.web.bind.annotation.*;
 public class TtsController {
     
     private final TtsService ttsService;
+    private final SpeakResponseCache speakResponseCache;
+    private final UserCharacterQuota userCharacterQuota;
     
     @GetMapping("/speak")
     public ResponseEntity<byte[]> speak(
             @RequestParam String text,
             @RequestParam(required = false, defaultValue = "es-ES-ElviraNeural") String voice) {
         
-        byte[] audioData = ttsService.generateAudio(text, voice);
+        byte[] audioData = speakResponseCache.get(text, voice);
+        if (audioData == null) {
+            // Solo se cobra lo que llega al servicio TTS; las respuestas en caché son gratis
+            userCharacterQuota.acquire(text.length());
+            audioData = ttsService.generateAudio(text, voice);
+            speakResponseCache.put(text, voice, audioData);
+        }
         
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.parseMediaType("audio/mpeg"));
@@ -30,5 +47,68 @@ public class TtsController {
                 .headers(headers)
                 .body(audioData);
     }
+    
+    @GetMapping("/speak/reactive")
+    public Mono<ResponseEntity<byte[]>> speakReactive(
+            @RequestParam String text,
+            @RequestParam(required = false, defaultValue = "es-ES-ElviraNeural") String voice) {
+        
+        // El hilo del servlet se libera en cuanto se devuelve el Mono
+        byte[] cached = speakResponseCache.get(text, voice);
+        if (cached == null) {
+            userCharacterQuota.acquire(text.length());
+        }
+        Mono<byte[]> audio = cached != null
+                ? Mono.just(cached)
+                : ttsService.generateAudioReactive(text, voice)
+                        .doOnNext(audioData -> speakResponseCache.put(text, voice, audioData));
+        
+        return audio.map(audioData -> {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.parseMediaType("audio/mpeg"));
+            headers.setContentLength(audioData.length);
+            headers.set("Content-Disposition", "inline; filename=audio.mp3");
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .body(audioData);
+        });
+    }
+    
+    @GetMapping("/speak/stream")
+    public ResponseEntity<StreamingResponseBody> speakStream(
+            @RequestParam String text,
+            @RequestParam(required = false, defaultValue = "es-ES-ElviraNeural") String voice) {
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("audio/mpeg"));
+        headers.set("Content-Disposition", "inline; filename=audio.mp3");
+        
+        byte[] cached = speakResponseCache.get(text, voice);
+        if (cached != null) {
+            headers.setContentLength(cached.length);
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .body(out -> out.write(cached));
+        }
+        
+        userCharacterQuota.acquire(text.length());
+        // Sin Content-Length: chunked transfer, cada fragmento se envía en cuanto llega
+        Flux<ByteBuffer> audio = ttsService.streamAudio(text, voice);
+        StreamingResponseBody body = out -> {
+            // Al cerrar el Stream se cancela la suscripción: si el cliente se desconecta, write()
+            // lanza IOException y se dejan de pedir fragmentos al servicio TTS
+            try (Stream<ByteBuffer> chunks = audio.toStream(1)) {
+                Iterator<ByteBuffer> iterator = chunks.iterator();
+                while (iterator.hasNext()) {
+                    ByteBuffer chunk = iterator.next();
+                    out.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+                    out.flush();
+                }
+            }
+        };
+        
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
+    }
 }
-
@@ -0,0 +1,23 @@
+package com.ttsapp.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Query parameters of the admin listings.
+ */
+@Data
+public class AdminListParams {
+    private Long userId;
+    private String username; // textos y ficheros: usuario exacto; usuarios: prefijo del nombre
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from; // incluido
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to; // incluido
+    private String title; // prefijo del título (del nombre de fichero en los huérfanos)
+    private String sort = "desc"; // asc | desc por fecha de creación
+    private String cursor;
+    private Integer limit;
+}
@@ -0,0 +1,21 @@
+package com.ttsapp.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filters, order and position of a page of an admin listing.
+ */
+@Data
+@Builder
+public class AdminListQuery {
+    private Long userId;
+    private LocalDateTime from; // incluido
+    private LocalDateTime to; // excluido
+    private String prefix; // título, nombre de usuario o de fichero según el listado
+    private boolean ascending;
+    private CursorPage.Key after;
+    private int limit;
+}
@@ -19,5 +19,7 @@ public class AudioFileInfo {
     private Long textEntryId; // ID del texto asociado
     private LocalDateTime createdAt; // Fecha de creación
     private Long fileSize; // Tamaño del archivo en bytes
+    private Long durationMs; // Duración del audio
+    private Integer bitrateKbps; // Tasa media
+    private String checksum; // SHA-256 del contenido
 }
-
@@ -0,0 +1,67 @@
+package com.ttsapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of an admin listing ordered by creation date.
+ * The cursor is opaque to clients: it encodes the (createdAt, id) of the last item, and the
+ * next page starts right after it, so every page costs the same however deep it is.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor; // null en la última página
+
+    /**
+     * Position of an item in the (createdAt, id) order.
+     */
+    public record Key(LocalDateTime createdAt, Long id) {
+    }
+
+    /**
+     * Build a page from up to limit + 1 rows; the extra row only says there is more.
+     * @param rows Rows fetched, in page order
+     * @param limit Page size
+     * @param keyOf Position of a row
+     * @param mapper Conversion of a row to the item returned
+     */
+    public static <E, T> CursorPage<T> of(List<E> rows, int limit, Function<E, Key> keyOf, Function<E, T> mapper) {
+        boolean more = rows.size() > limit;
+        List<E> page = more ? rows.subList(0, limit) : rows;
+        String next = more ? encode(keyOf.apply(page.get(page.size() - 1))) : null;
+        return new CursorPage<>(page.stream().map(mapper).toList(), next);
+    }
+
+    public static String encode(Key key) {
+        String raw = key.createdAt() + "|" + key.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor Cursor received from a previous page, or null for the first page
+     * @return Position to continue after, or null
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public static Key decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new Key(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page cursor", e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.ttsapp.dto;
+
+import com.ttsapp.entity.TextEntry;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SynthesisJobResponse {
+    private Long jobId; // Igual al ID del texto
+    private String status;
+    private String audioUrl;
+
+    public static SynthesisJobResponse fromEntity(TextEntry entry) {
+        return SynthesisJobResponse.builder()
+                .jobId(entry.getId())
+                .status(entry.getStatus() != null ? entry.getStatus().name() : TextEntry.AudioStatus.COMPLETED.name())
+                .audioUrl(entry.getAudioUrl())
+                .build();
+    }
+}
@@ -0,0 +1,28 @@
+package com.ttsapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one item of a batch creation, in the same position as in the request.
+ * Either the created entry or the error that prevented it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TextEntryBatchResult {
+    private int index;
+    private TextEntryResponse entry;
+    private String error;
+
+    public static TextEntryBatchResult created(int index, TextEntryResponse entry) {
+        return TextEntryBatchResult.builder().index(index).entry(entry).build();
+    }
+
+    public static TextEntryBatchResult failed(int index, TextEntryResponse entry, String error) {
+        return TextEntryBatchResult.builder().index(index).entry(entry).error(error).build();
+    }
+}
@@ -20,6 +20,8 @@ public class TextEntryResponse {
     private String username;
     private LocalDateTime createdAt;
     private String audioUrl;
+    private String voice;
+    private String status;
     
     public static TextEntryResponse fromEntity(TextEntry entry) {
         return TextEntryResponse.builder()
@@ -30,6 +32,9 @@ public class TextEntryResponse {
                 .username(entry.getUser().getUsername())
                 .createdAt(entry.getCreatedAt())
                 .audioUrl(entry.getAudioUrl())
+                .voice(entry.getVoice())
+                // Las entradas anteriores a la síntesis asíncrona no tienen estado
+                .status(entry.getStatus() != null ? entry.getStatus().name() : TextEntry.AudioStatus.COMPLETED.name())
                 .build();
     }
 }
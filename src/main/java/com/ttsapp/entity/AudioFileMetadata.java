@@ -0,0 +1,55 @@
+package com.ttsapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Index entry of one audio file in the audio storage, written when the file is saved and
+ * removed when it is deleted, so listings can be answered from the database alone.
+ */
+@Entity
+@Table(name = "audio_files", indexes = @Index(name = "idx_audio_files_created", columnList = "createdAt, id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AudioFileMetadata {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private String filename;
+
+    @Column(nullable = false, unique = true)
+    private String audioUrl;
+
+    @Column(nullable = false)
+    private long sizeBytes;
+
+    @Column(nullable = false)
+    private long durationMs;
+
+    // Tasa media en kbps, calculada con el tamaño y la duración
+    @Column(nullable = false)
+    private int bitrateKbps;
+
+    // SHA-256 del contenido del fichero
+    @Column(nullable = false, length = 64)
+    private String checksum;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.ttsapp.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Position of one text chunk's audio inside an entry's MP3 file.
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AudioSegment {
+
+    // Clave del fragmento en la caché (motor, idioma, velocidad y texto normalizado)
+    @Column(name = "chunk_key", nullable = false, length = 64)
+    private String chunkKey;
+
+    @Column(name = "byte_offset", nullable = false)
+    private long offset;
+
+    @Column(name = "byte_length", nullable = false)
+    private long length;
+
+    @Column(nullable = false)
+    private int frames;
+
+    @Column(nullable = false)
+    private long samples;
+}
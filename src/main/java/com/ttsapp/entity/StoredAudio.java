@@ -0,0 +1,56 @@
+package com.ttsapp.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An audio file under uploads/audio, shared by every text entry with the same
+ * (normalized content, voice). The file is deleted when the last reference is released.
+ */
+@Entity
+@Table(name = "stored_audio")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StoredAudio {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // SHA-256 de (motor, voz, contenido normalizado)
+    @Column(nullable = false, unique = true, length = 64)
+    private String contentHash;
+
+    @Column(nullable = false, unique = true)
+    private String audioUrl;
+
+    @Column(nullable = false)
+    private int refCount;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Posición del audio de cada fragmento en el fichero, para reutilizarlo al editar el texto
+    @ElementCollection
+    @CollectionTable(name = "stored_audio_segments", joinColumns = @JoinColumn(name = "stored_audio_id"))
+    @OrderColumn(name = "segment_index")
+    @Builder.Default
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private List<AudioSegment> segments = new ArrayList<>();
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -9,7 +9,12 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "text_entries")
+@Table(name = "text_entries", indexes = {
+        @Index(name = "idx_text_entries_audio_url", columnList = "audioUrl"),
+        // Listados de administración: por usuario o de todos, en orden de creación
+        @Index(name = "idx_text_entries_user_created", columnList = "user_id, createdAt, id"),
+        @Index(name = "idx_text_entries_created", columnList = "createdAt, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -35,9 +40,21 @@ public class TextEntry {
     @Column
     private String audioUrl;
     
+    @Column
+    private String voice;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    @Builder.Default
+    private AudioStatus status = AudioStatus.COMPLETED;
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
     }
+    
+    public enum AudioStatus {
+        PENDING, PROCESSING, COMPLETED, FAILED
+    }
 }
 
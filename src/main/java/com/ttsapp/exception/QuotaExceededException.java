@@ -0,0 +1,16 @@
+package com.ttsapp.exception;
+
+import java.time.Duration;
+
+public class QuotaExceededException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public QuotaExceededException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
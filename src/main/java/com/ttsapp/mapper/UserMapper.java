@@ -53,6 +53,24 @@ public class UserMapper {
         }
     }
     
+    /**
+     * Convert User entity to UserResponse DTO with an already known number of texts,
+     * without loading the user's text entries.
+     * @param user User entity
+     * @param textEntriesCount Number of texts of the user
+     * @return UserResponse DTO
+     */
+    public UserResponse toResponse(User user, long textEntriesCount) {
+        return UserResponse.builder()
+                .id(user.getId())
+                .username(user.getUsername())
+                .email(user.getEmail())
+                .role(user.getRole() != null ? user.getRole().name() : "USER")
+                .createdAt(user.getCreatedAt())
+                .textEntriesCount(textEntriesCount)
+                .build();
+    }
+    
     /**
      * Convert list of User entities to list of UserResponse DTOs.
      * @param users List of User entities
@@ -0,0 +1,120 @@
+package com.ttsapp.repository;
+
+import com.ttsapp.dto.AdminListQuery;
+import com.ttsapp.dto.CursorPage;
+import com.ttsapp.entity.AudioFileMetadata;
+import com.ttsapp.entity.TextEntry;
+import com.ttsapp.entity.User;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filters of the admin listings. Every listing is ordered by (createdAt, id) and continues
+ * after the position of the cursor with a range condition on that pair, so a page reads only
+ * its own rows from the created_at indexes instead of skipping over the earlier ones.
+ */
+public final class AdminListSpecifications {
+
+    private AdminListSpecifications() {
+    }
+
+    public static Sort order(boolean ascending) {
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        return Sort.by(direction, "createdAt").and(Sort.by(direction, "id"));
+    }
+
+    /**
+     * Texts, optionally of one user and with a title prefix.
+     */
+    public static Specification<TextEntry> texts(AdminListQuery query) {
+        return (root, criteria, cb) -> {
+            List<Predicate> predicates = keyset(root, cb, query);
+            if (query.getUserId() != null) {
+                predicates.add(cb.equal(root.get("user").get("id"), query.getUserId()));
+            }
+            if (hasText(query.getPrefix())) {
+                predicates.add(cb.like(root.get("title"), startsWith(query.getPrefix()), '\\'));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    /**
+     * Texts that have an audio file.
+     */
+    public static Specification<TextEntry> textsWithAudio(AdminListQuery query) {
+        Specification<TextEntry> withAudio = (root, criteria, cb) -> cb.and(
+                cb.isNotNull(root.get("audioUrl")), cb.notEqual(root.get("audioUrl"), ""));
+        return texts(query).and(withAudio);
+    }
+
+    /**
+     * Users, optionally with a user name prefix.
+     */
+    public static Specification<User> users(AdminListQuery query) {
+        return (root, criteria, cb) -> {
+            List<Predicate> predicates = keyset(root, cb, query);
+            if (hasText(query.getPrefix())) {
+                predicates.add(cb.like(root.get("username"), startsWith(query.getPrefix()), '\\'));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    /**
+     * Indexed audio files that no text references, optionally with a file name prefix.
+     */
+    public static Specification<AudioFileMetadata> orphanFiles(AdminListQuery query) {
+        return (root, criteria, cb) -> {
+            List<Predicate> predicates = keyset(root, cb, query);
+            if (hasText(query.getPrefix())) {
+                predicates.add(cb.like(root.get("filename"), startsWith(query.getPrefix()), '\\'));
+            }
+            // Antijoin por fila de la página, resuelto con el índice de text_entries.audio_url
+            Subquery<Long> referencing = criteria.subquery(Long.class);
+            Root<TextEntry> entry = referencing.from(TextEntry.class);
+            referencing.select(entry.get("id")).where(cb.equal(entry.get("audioUrl"), root.get("audioUrl")));
+            predicates.add(cb.not(cb.exists(referencing)));
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    // Rango de fechas y posición del cursor sobre (createdAt, id)
+    private static List<Predicate> keyset(Root<?> root, CriteriaBuilder cb, AdminListQuery query) {
+        List<Predicate> predicates = new ArrayList<>();
+        Path<LocalDateTime> createdAt = root.get("createdAt");
+        if (query.getFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(createdAt, query.getFrom()));
+        }
+        if (query.getTo() != null) {
+            predicates.add(cb.lessThan(createdAt, query.getTo()));
+        }
+        CursorPage.Key after = query.getAfter();
+        if (after != null) {
+            Path<Long> id = root.get("id");
+            predicates.add(query.isAscending()
+                    ? cb.or(cb.greaterThan(createdAt, after.createdAt()),
+                            cb.and(cb.equal(createdAt, after.createdAt()), cb.greaterThan(id, after.id())))
+                    : cb.or(cb.lessThan(createdAt, after.createdAt()),
+                            cb.and(cb.equal(createdAt, after.createdAt()), cb.lessThan(id, after.id()))));
+        }
+        return predicates;
+    }
+
+    private static String startsWith(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
@@ -0,0 +1,28 @@
+package com.ttsapp.repository;
+
+import com.ttsapp.entity.AudioFileMetadata;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+public interface AudioFileMetadataRepository extends JpaRepository<AudioFileMetadata, Long>,
+        JpaSpecificationExecutor<AudioFileMetadata> {
+
+    // De los nombres dados, los que ya están en el índice (una sola consulta por lote)
+    @Query("SELECT m.filename FROM AudioFileMetadata m WHERE m.filename IN :filenames")
+    Set<String> findIndexedFilenames(@Param("filenames") Collection<String> filenames);
+
+    List<AudioFileMetadata> findByAudioUrlIn(Collection<String> audioUrls);
+
+    @Modifying
+    @Query("DELETE FROM AudioFileMetadata m WHERE m.audioUrl = :audioUrl")
+    int deleteByAudioUrl(@Param("audioUrl") String audioUrl);
+}
@@ -0,0 +1,19 @@
+package com.ttsapp.repository;
+
+import com.ttsapp.entity.StoredAudio;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface StoredAudioRepository extends JpaRepository<StoredAudio, Long> {
+    // Con bloqueo de fila: el contador de referencias se modifica dentro de la misma transacción
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<StoredAudio> findByContentHash(String contentHash);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<StoredAudio> findByAudioUrl(String audioUrl);
+}
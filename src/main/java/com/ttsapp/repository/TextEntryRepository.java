@@ -4,16 +4,30 @@ import com.ttsapp.entity.TextEntry;
 import com.ttsapp.entity.User;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
-public interface TextEntryRepository extends JpaRepository<TextEntry, Long> {
+public interface TextEntryRepository extends JpaRepository<TextEntry, Long>, JpaSpecificationExecutor<TextEntry> {
     List<TextEntry> findByUser(User user);
     Optional<TextEntry> findByIdAndUser(Long id, User user);
+    List<TextEntry> findByStatusIn(Collection<TextEntry.AudioStatus> statuses);
+    boolean existsByAudioUrl(String audioUrl);
+    
+    // De las URLs dadas, las que usa algún texto (una sola consulta por lote)
+    @Query("SELECT DISTINCT t.audioUrl FROM TextEntry t WHERE t.audioUrl IN :audioUrls")
+    Set<String> findReferencedAudioUrls(@Param("audioUrls") Collection<String> audioUrls);
+    
+    // Número de textos de cada usuario de la lista, con el índice (user_id, created_at)
+    @Query("SELECT t.user.id, COUNT(t) FROM TextEntry t WHERE t.user.id IN :userIds GROUP BY t.user.id")
+    List<Object[]> countByUserIds(@Param("userIds") Collection<Long> userIds);
     
     // Método para obtener todos los TextEntry con la relación User cargada
     @EntityGraph(attributePaths = {"user"})
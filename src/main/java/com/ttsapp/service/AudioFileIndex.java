@@ -0,0 +1,307 @@
+package com.ttsapp.service;
+
+import com.ttsapp.dto.AdminListQuery;
+import com.ttsapp.dto.AudioFileInfo;
+import com.ttsapp.dto.CursorPage;
+import com.ttsapp.entity.AudioFileMetadata;
+import com.ttsapp.entity.TextEntry;
+import com.ttsapp.repository.AdminListSpecifications;
+import com.ttsapp.repository.AudioFileMetadataRepository;
+import com.ttsapp.repository.TextEntryRepository;
+import com.ttsapp.service.storage.AudioStorage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size, duration, bitrate and checksum of every audio file, kept in the audio_files table.
+ * Files are recorded when they are saved and dropped when they are deleted, so listings
+ * never have to walk the storage, and are paged like the other admin listings. Files saved
+ * before the index existed are picked up by a background pass that walks the storage once,
+ * a batch at a time.
+ */
+@Service
+@Slf4j
+public class AudioFileIndex {
+
+    private static final int READ_BUFFER = 64 * 1024;
+
+    private final AudioFileMetadataRepository audioFileMetadataRepository;
+    private final TextEntryRepository textEntryRepository;
+    private final AudioStorage audioStorage;
+    private final TransactionTemplate newTransaction;
+    private final boolean backfillEnabled;
+    private final int backfillBatchSize;
+
+    // Posición del recorrido de relleno: shard y último nombre revisado
+    private String backfillShard = "";
+    private String backfillAfter = "";
+    private volatile boolean backfillCompleted;
+
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong removed = new AtomicLong();
+    private final AtomicLong backfilled = new AtomicLong();
+
+    public AudioFileIndex(AudioFileMetadataRepository audioFileMetadataRepository,
+                          TextEntryRepository textEntryRepository,
+                          AudioStorage audioStorage,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${tts.audio-index.backfill.enabled:true}") boolean backfillEnabled,
+                          @Value("${tts.audio-index.backfill.batch-size:1000}") int backfillBatchSize) {
+        this.audioFileMetadataRepository = audioFileMetadataRepository;
+        this.textEntryRepository = textEntryRepository;
+        this.audioStorage = audioStorage;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.backfillEnabled = backfillEnabled;
+        this.backfillBatchSize = Math.max(1, backfillBatchSize);
+    }
+
+    /**
+     * Record a file that has just been written, whose duration is already known.
+     * @param filename File name in the storage
+     * @param file Path of the file
+     * @param durationMs Duration of the audio
+     */
+    public void record(String filename, Path file, long durationMs) throws IOException {
+        MessageDigest digest = sha256();
+        long size = 0;
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            byte[] buffer = new byte[READ_BUFFER];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                size += read;
+            }
+        }
+        save(filename, size, durationMs, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Record a file whose duration has to be read from its frames.
+     * @param filename File name in the storage
+     * @param data Contents of the file
+     */
+    public void record(String filename, byte[] data) {
+        long durationMs = durationOf(data);
+        save(filename, data.length, durationMs, HexFormat.of().formatHex(sha256().digest(data)));
+    }
+
+    /**
+     * Drop the entry of a deleted file. Runs in its own transaction, since it is also called
+     * once another transaction has committed.
+     * @param audioUrl URL of the file
+     */
+    public void remove(String audioUrl) {
+        Integer deleted = newTransaction.execute(status -> audioFileMetadataRepository.deleteByAudioUrl(audioUrl));
+        if (deleted != null && deleted > 0) {
+            removed.incrementAndGet();
+        }
+    }
+
+    /**
+     * A page of the audio files of the texts, one row per text, with the data of the index.
+     * @param query Filters and position of the page
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<AudioFileInfo> getFilesPage(AdminListQuery query) {
+        List<TextEntry> entries = textEntryRepository.findBy(AdminListSpecifications.textsWithAudio(query),
+                q -> q.sortBy(AdminListSpecifications.order(query.isAscending()))
+                        .limit(query.getLimit() + 1)
+                        .project("user")
+                        .all());
+        // Una consulta por página para los datos de los ficheros
+        Map<String, AudioFileMetadata> metadata = entries.isEmpty()
+                ? Map.of()
+                : audioFileMetadataRepository.findByAudioUrlIn(entries.stream().map(TextEntry::getAudioUrl).toList())
+                        .stream()
+                        .collect(Collectors.toMap(AudioFileMetadata::getAudioUrl, Function.identity()));
+        return CursorPage.of(entries, query.getLimit(),
+                entry -> new CursorPage.Key(entry.getCreatedAt(), entry.getId()),
+                entry -> toInfo(entry, metadata.get(entry.getAudioUrl())));
+    }
+
+    /**
+     * A page of the indexed audio files that no text references.
+     * @param query Filters and position of the page
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<AudioFileInfo> getOrphanFilesPage(AdminListQuery query) {
+        List<AudioFileMetadata> files = audioFileMetadataRepository.findBy(AdminListSpecifications.orphanFiles(query),
+                q -> q.sortBy(AdminListSpecifications.order(query.isAscending()))
+                        .limit(query.getLimit() + 1)
+                        .all());
+        return CursorPage.of(files, query.getLimit(),
+                file -> new CursorPage.Key(file.getCreatedAt(), file.getId()),
+                file -> toInfo(null, file));
+    }
+
+    @Scheduled(initialDelayString = "${tts.audio-index.backfill.initial-delay:PT20S}",
+            fixedDelayString = "${tts.audio-index.backfill.interval:PT10S}")
+    public void scheduledBackfill() {
+        if (backfillEnabled && !backfillCompleted) {
+            backfill();
+        }
+    }
+
+    /**
+     * Index the next batch of files that are in the storage but not in the table.
+     * @return Number of files added to the index
+     */
+    public synchronized int backfill() {
+        int added = 0;
+        try {
+            List<Path> batch = nextBackfillBatch();
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            List<String> names = batch.stream().map(file -> file.getFileName().toString()).toList();
+            Set<String> indexed = audioFileMetadataRepository.findIndexedFilenames(names);
+            for (Path file : batch) {
+                String filename = file.getFileName().toString();
+                if (indexed.contains(filename)) {
+                    continue;
+                }
+                try {
+                    recordExisting(filename, file);
+                    added++;
+                } catch (IOException e) {
+                    // Borrado o movido mientras tanto; si sigue existiendo se indexa en otra vuelta
+                    log.debug("Could not index audio file {}", file, e);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Audio index backfill failed", e);
+        }
+        if (added > 0) {
+            backfilled.addAndGet(added);
+            log.info("Audio index: {} existing files indexed", added);
+        }
+        return added;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("files", audioFileMetadataRepository.count());
+        stats.put("recorded", recorded.get());
+        stats.put("removed", removed.get());
+        stats.put("backfilled", backfilled.get());
+        stats.put("backfillCompleted", backfillCompleted);
+        return stats;
+    }
+
+    // Los siguientes ficheros del recorrido, shard a shard; al llegar al final se da por terminado
+    private List<Path> nextBackfillBatch() throws IOException {
+        List<Path> batch = new ArrayList<>();
+        while (batch.size() < backfillBatchSize) {
+            for (Path file : audioStorage.listShard(backfillShard)) {
+                String name = file.getFileName().toString();
+                if (name.compareTo(backfillAfter) > 0) {
+                    batch.add(file);
+                    backfillAfter = name;
+                    if (batch.size() >= backfillBatchSize) {
+                        return batch;
+                    }
+                }
+            }
+            String next = audioStorage.nextShard(backfillShard);
+            if (next == null) {
+                backfillCompleted = true;
+                return batch;
+            }
+            backfillShard = next;
+            backfillAfter = "";
+        }
+        return batch;
+    }
+
+    private static AudioFileInfo toInfo(TextEntry entry, AudioFileMetadata metadata) {
+        AudioFileInfo.AudioFileInfoBuilder info = AudioFileInfo.builder();
+        if (entry != null) {
+            info.audioUrl(entry.getAudioUrl())
+                    .filename(entry.getAudioUrl().substring(entry.getAudioUrl().lastIndexOf('/') + 1))
+                    .title(entry.getTitle())
+                    .username(entry.getUser() != null ? entry.getUser().getUsername() : "(Desconocido)")
+                    .textEntryId(entry.getId())
+                    .createdAt(entry.getCreatedAt())
+                    // Sin entrada en el índice: el fichero no existe o aún no se ha indexado
+                    .fileSize(0L);
+        } else {
+            info.audioUrl(metadata.getAudioUrl())
+                    .filename(metadata.getFilename())
+                    .title("(Sin texto asociado)")
+                    .username("(Desconocido)")
+                    .createdAt(metadata.getCreatedAt());
+        }
+        if (metadata != null) {
+            info.fileSize(metadata.getSizeBytes())
+                    .durationMs(metadata.getDurationMs())
+                    .bitrateKbps(metadata.getBitrateKbps())
+                    .checksum(metadata.getChecksum());
+        }
+        return info.build();
+    }
+
+    private void recordExisting(String filename, Path file) throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        save(filename, data.length, durationOf(data), HexFormat.of().formatHex(sha256().digest(data)));
+        // Si se borró mientras se leía, la entrada recién creada sobra
+        if (audioStorage.locate(filename) == null) {
+            remove(audioStorage.urlOf(filename));
+        }
+    }
+
+    private void save(String filename, long size, long durationMs, String checksum) {
+        try {
+            // Transacción propia: el fichero ya existe aunque falle la operación que lo creó
+            newTransaction.executeWithoutResult(status -> audioFileMetadataRepository.save(AudioFileMetadata.builder()
+                    .filename(filename)
+                    .audioUrl(audioStorage.urlOf(filename))
+                    .sizeBytes(size)
+                    .durationMs(durationMs)
+                    .bitrateKbps(durationMs > 0 ? (int) (size * 8 / durationMs) : 0)
+                    .checksum(checksum)
+                    .build()));
+            recorded.incrementAndGet();
+        } catch (DataIntegrityViolationException e) {
+            // Ya indexado, p. ej. por el relleno en segundo plano a la vez
+            log.debug("Audio file {} already indexed", filename);
+        }
+    }
+
+    private static long durationOf(byte[] data) {
+        Mp3FrameJoiner joiner = new Mp3FrameJoiner();
+        joiner.add(data);
+        return joiner.getDurationMs();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.ttsapp.service;
+
+import com.ttsapp.repository.TextEntryRepository;
+import com.ttsapp.service.storage.AudioStorage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background sweeper that removes audio files no text entry references any more.
+ * Each pass reconciles one batch of the audio storage, walked shard by shard in file name
+ * order, against text_entries.audio_url with a single query and continues from there on the
+ * next pass, so the cost of a pass does not grow with the number of files. Deletions per pass
+ * are capped and recent files are left alone, since a file is moved into place just before
+ * the entry that references it is committed. Orphans can be quarantined instead of deleted.
+ */
+@Component
+@Slf4j
+public class AudioGarbageCollector {
+
+    // Posición dentro del almacén: shard y nombre del fichero
+    private record Position(String shard, String name) {
+        static final Position START = new Position("", "");
+    }
+
+    private record Item(Position position, Path file) {
+    }
+
+    private final TextEntryRepository textEntryRepository;
+    private final AudioStorage audioStorage;
+    private final AudioFileIndex audioFileIndex;
+    private final SharedAudioService sharedAudioService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxDeletesPerRun;
+    private final Duration minAge;
+    private final boolean quarantine;
+    private final Duration quarantineRetention;
+    private final Path quarantineDirectory;
+
+    // Último fichero revisado; la siguiente pasada sigue a partir de él
+    private Position cursor = Position.START;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong filesScanned = new AtomicLong();
+    private final AtomicLong orphansFound = new AtomicLong();
+    private final AtomicLong filesDeleted = new AtomicLong();
+    private final AtomicLong filesQuarantined = new AtomicLong();
+    private final AtomicLong tempFilesDeleted = new AtomicLong();
+    private final AtomicLong bytesReclaimed = new AtomicLong();
+    private volatile Instant lastRunAt;
+    private volatile long lastRunMillis;
+
+    public AudioGarbageCollector(TextEntryRepository textEntryRepository,
+                                 AudioStorage audioStorage,
+                                 AudioFileIndex audioFileIndex,
+                                 SharedAudioService sharedAudioService,
+                                 @Value("${tts.gc.enabled:true}") boolean enabled,
+                                 @Value("${tts.gc.batch-size:500}") int batchSize,
+                                 @Value("${tts.gc.max-deletes-per-run:100}") int maxDeletesPerRun,
+                                 @Value("${tts.gc.min-age:1h}") Duration minAge,
+                                 @Value("${tts.gc.mode:delete}") String mode,
+                                 @Value("${tts.gc.quarantine-retention:7d}") Duration quarantineRetention,
+                                 @Value("${tts.gc.quarantine-dir:uploads/quarantine}") String quarantineDirectory) {
+        this.textEntryRepository = textEntryRepository;
+        this.audioStorage = audioStorage;
+        this.audioFileIndex = audioFileIndex;
+        this.sharedAudioService = sharedAudioService;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxDeletesPerRun = Math.max(0, maxDeletesPerRun);
+        this.minAge = minAge;
+        this.quarantine = "quarantine".equalsIgnoreCase(mode);
+        this.quarantineRetention = quarantineRetention;
+        this.quarantineDirectory = Paths.get(quarantineDirectory);
+    }
+
+    @Scheduled(initialDelayString = "${tts.gc.initial-delay:PT1M}", fixedDelayString = "${tts.gc.interval:PT10M}")
+    public void scheduledSweep() {
+        if (enabled) {
+            sweep();
+        }
+    }
+
+    /**
+     * Run one pass over the next batch of files.
+     * @return Result of the pass
+     */
+    public synchronized Map<String, Object> sweep() {
+        long start = System.nanoTime();
+        Instant cutoff = Instant.now().minus(minAge);
+        int scanned = 0;
+        int orphans = 0;
+        int removed = 0;
+        long reclaimed = 0;
+
+        try {
+            List<Item> batch = nextBatch();
+            scanned = batch.size();
+            // Lote incompleto: se ha llegado al final y la siguiente pasada vuelve a empezar
+            Position nextCursor = batch.size() < batchSize ? Position.START : batch.get(batch.size() - 1).position();
+
+            Map<String, Item> candidates = oldEnough(batch, cutoff);
+            Set<String> referenced = candidates.isEmpty()
+                    ? Set.of()
+                    : textEntryRepository.findReferencedAudioUrls(candidates.keySet());
+
+            Position lastHandled = cursor;
+            for (Map.Entry<String, Item> candidate : candidates.entrySet()) {
+                if (!referenced.contains(candidate.getKey()) && removed >= maxDeletesPerRun) {
+                    // Límite por pasada alcanzado: el resto se revisa en la siguiente
+                    nextCursor = lastHandled;
+                    break;
+                }
+                lastHandled = candidate.getValue().position();
+                if (referenced.contains(candidate.getKey())) {
+                    continue;
+                }
+                // Se vuelve a comprobar bajo el bloqueo del registro compartido, que cuenta
+                // también las referencias cuyas entradas aún no se han guardado
+                if (!sharedAudioService.claimOrphan(candidate.getKey())) {
+                    continue;
+                }
+                orphans++;
+                long size = removeOrphan(candidate.getValue());
+                if (size >= 0) {
+                    removed++;
+                    reclaimed += size;
+                }
+            }
+            cursor = nextCursor;
+            reclaimed += purgeQuarantine();
+            reclaimed += purgeTempFiles(cutoff);
+        } catch (IOException | RuntimeException e) {
+            log.error("Audio garbage collection failed", e);
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        runs.incrementAndGet();
+        filesScanned.addAndGet(scanned);
+        orphansFound.addAndGet(orphans);
+        bytesReclaimed.addAndGet(reclaimed);
+        lastRunAt = Instant.now();
+        lastRunMillis = elapsedMillis;
+        if (orphans > 0) {
+            log.info("Audio GC: {} files scanned, {} orphans {}, {} bytes reclaimed in {} ms",
+                    scanned, orphans, quarantine ? "quarantined" : "deleted", reclaimed, elapsedMillis);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("scanned", scanned);
+        result.put("orphans", orphans);
+        result.put("removed", removed);
+        result.put("bytesReclaimed", reclaimed);
+        result.put("elapsedMs", elapsedMillis);
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("mode", quarantine ? "quarantine" : "delete");
+        stats.put("runs", runs.get());
+        stats.put("filesScanned", filesScanned.get());
+        stats.put("orphansFound", orphansFound.get());
+        stats.put("filesDeleted", filesDeleted.get());
+        stats.put("filesQuarantined", filesQuarantined.get());
+        stats.put("tempFilesDeleted", tempFilesDeleted.get());
+        stats.put("bytesReclaimed", bytesReclaimed.get());
+        stats.put("lastRunAt", lastRunAt != null ? lastRunAt.toString() : null);
+        stats.put("lastRunMs", lastRunMillis);
+        return stats;
+    }
+
+    // Los batchSize primeros ficheros posteriores al cursor, leyendo solo los shards necesarios
+    private List<Item> nextBatch() throws IOException {
+        List<Item> batch = new ArrayList<>();
+        String shard = cursor.shard();
+        String after = cursor.name();
+        while (shard != null && batch.size() < batchSize) {
+            for (Path file : audioStorage.listShard(shard)) {
+                String name = file.getFileName().toString();
+                if (name.compareTo(after) > 0) {
+                    batch.add(new Item(new Position(shard, name), file));
+                    if (batch.size() >= batchSize) {
+                        break;
+                    }
+                }
+            }
+            if (batch.size() < batchSize) {
+                shard = audioStorage.nextShard(shard);
+                after = "";
+            }
+        }
+        return batch;
+    }
+
+    // Ficheros del lote con más antigüedad que el margen, indexados por su URL
+    private Map<String, Item> oldEnough(List<Item> batch, Instant cutoff) {
+        Map<String, Item> candidates = new LinkedHashMap<>();
+        for (Item item : batch) {
+            Path file = item.file();
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException e) {
+                continue; // borrado mientras tanto
+            }
+            if (attributes.isRegularFile() && attributes.lastModifiedTime().toInstant().isBefore(cutoff)) {
+                candidates.put(audioStorage.urlOf(item.position().name()), item);
+            }
+        }
+        return candidates;
+    }
+
+    // Devuelve los bytes liberados en el almacén de audio, o -1 si no se pudo
+    private long removeOrphan(Item item) {
+        // El migrador puede haberlo cambiado de sitio desde que se listó
+        Path file = audioStorage.locate(item.position().name());
+        if (file == null) {
+            return -1;
+        }
+        try {
+            long size = Files.size(file);
+            // Fuera del almacén deja de figurar en el índice, también si va a cuarentena
+            audioFileIndex.remove(audioStorage.urlOf(item.position().name()));
+            if (quarantine) {
+                Files.createDirectories(quarantineDirectory);
+                Path target = quarantineDirectory.resolve(file.getFileName());
+                Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+                // Se marca la hora de entrada en cuarentena para contar la retención desde ahí
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                filesQuarantined.incrementAndGet();
+                return 0;
+            }
+            audioStorage.delete(item.position().name());
+            filesDeleted.incrementAndGet();
+            return size;
+        } catch (IOException e) {
+            log.warn("Could not remove orphaned audio file {}", file, e);
+            return -1;
+        }
+    }
+
+    private long purgeQuarantine() throws IOException {
+        return deleteOlderThan(quarantineDirectory, Instant.now().minus(quarantineRetention), filesDeleted);
+    }
+
+    // Ficheros a medio escribir que quedaron de un proceso interrumpido
+    private long purgeTempFiles(Instant cutoff) throws IOException {
+        return deleteOlderThan(audioStorage.getTempDirectory(), cutoff, tempFilesDeleted);
+    }
+
+    private long deleteOlderThan(Path directory, Instant cutoff, AtomicLong counter) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        long reclaimed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (attributes.isRegularFile() && attributes.lastModifiedTime().toInstant().isBefore(cutoff)
+                            && Files.deleteIfExists(file)) {
+                        counter.incrementAndGet();
+                        reclaimed += attributes.size();
+                    }
+                } catch (IOException e) {
+                    log.warn("Could not delete {}", file, e);
+                }
+            }
+        }
+        return reclaimed;
+    }
+}
@@ -0,0 +1,255 @@
+package com.ttsapp.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Persistent cache of synthesized chunk audio, addressed by the hash of
+ * (engine, lang, speed, normalized text). Files live under the uploads directory and survive
+ * restarts; the total size is bounded and the least recently used entries are evicted.
+ */
+@Component
+@Slf4j
+public class ChunkAudioCache {
+
+    private static final String EXTENSION = ".mp3";
+
+    private final boolean enabled;
+    private final Path cacheDir;
+    private final long maxBytes;
+
+    // Orden de acceso: el primer elemento es el menos usado recientemente.
+    // ReentrantLock en lugar de synchronized para no fijar hilos virtuales a su portador
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ChunkAudioCache(@Value("${tts.cache.chunks.enabled:true}") boolean enabled,
+                           @Value("${tts.cache.chunks.dir:uploads/cache/chunks}") String cacheDir,
+                           @Value("${tts.cache.chunks.max-bytes:536870912}") long maxBytes) {
+        this.enabled = enabled;
+        this.cacheDir = Paths.get(cacheDir);
+        this.maxBytes = maxBytes;
+    }
+
+    @PostConstruct
+    void loadExistingEntries() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(cacheDir);
+            List<Path> files;
+            try (Stream<Path> stream = Files.list(cacheDir)) {
+                files = stream
+                        .filter(path -> path.getFileName().toString().endsWith(EXTENSION))
+                        .sorted((a, b) -> lastModified(a).compareTo(lastModified(b)))
+                        .toList();
+            }
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long size = Files.size(file);
+                lock.lock();
+                try {
+                    entries.put(name.substring(0, name.length() - EXTENSION.length()), size);
+                    totalBytes += size;
+                } finally {
+                    lock.unlock();
+                }
+            }
+            deleteFiles(evictOverBudget());
+            log.info("Chunk audio cache loaded: {} entries, {} bytes", entries.size(), totalBytes);
+        } catch (IOException e) {
+            log.error("Failed to load chunk audio cache from {}", cacheDir, e);
+        }
+    }
+
+    /**
+     * Build the cache key for a chunk.
+     * @param engine Name of the engine that synthesizes the chunk
+     * @param lang Language code
+     * @param speed TTS speed
+     * @param text Chunk text
+     * @return Hex SHA-256 of the normalized request
+     */
+    public String key(String engine, String lang, String speed, CharSequence text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC)
+                .replaceAll("\\s+", " ")
+                .trim();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(engine.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(lang.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(speed.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Get cached audio for a key.
+     * @param key Cache key
+     * @return Audio bytes, or null on a miss
+     */
+    public byte[] get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        lock.lock();
+        try {
+            if (entries.get(key) == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        Path file = cacheDir.resolve(key + EXTENSION);
+        try {
+            byte[] data = Files.readAllBytes(file);
+            hits.incrementAndGet();
+            // Conserva el orden LRU entre reinicios
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return data;
+        } catch (NoSuchFileException e) {
+            remove(key);
+        } catch (IOException e) {
+            log.warn("Error reading cached chunk {}", key, e);
+            remove(key);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Store audio for a key, evicting least recently used entries if over budget.
+     * @param key Cache key
+     * @param data Audio bytes
+     */
+    public void put(String key, byte[] data) {
+        if (!enabled || data == null || data.length == 0 || data.length > maxBytes) {
+            return;
+        }
+        Path file = cacheDir.resolve(key + EXTENSION);
+        try {
+            Files.createDirectories(cacheDir);
+            Path temp = Files.createTempFile(cacheDir, key, ".tmp");
+            Files.write(temp, data);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Error writing cached chunk {}", key, e);
+            return;
+        }
+        List<String> victims;
+        lock.lock();
+        try {
+            Long previous = entries.put(key, (long) data.length);
+            totalBytes += data.length - (previous != null ? previous : 0L);
+            victims = evictOverBudget();
+        } finally {
+            lock.unlock();
+        }
+        deleteFiles(victims);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        lock.lock();
+        try {
+            stats.put("entries", entries.size());
+            stats.put("bytes", totalBytes);
+        } finally {
+            lock.unlock();
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.get());
+        stats.put("hitRatio", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0.0);
+        return stats;
+    }
+
+    private void remove(String key) {
+        lock.lock();
+        try {
+            Long size = entries.remove(key);
+            if (size != null) {
+                totalBytes -= size;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Devuelve las claves expulsadas para borrar sus ficheros fuera del lock
+    private List<String> evictOverBudget() {
+        List<String> victims = new ArrayList<>();
+        lock.lock();
+        try {
+            Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                totalBytes -= eldest.getValue();
+                victims.add(eldest.getKey());
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return victims;
+    }
+
+    private void deleteFiles(List<String> keys) {
+        for (String key : keys) {
+            try {
+                Files.deleteIfExists(cacheDir.resolve(key + EXTENSION));
+            } catch (IOException e) {
+                log.warn("Error deleting evicted chunk {}", key, e);
+            }
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.ttsapp.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Consecutive-failure circuit breaker. After {@code failureThreshold} failures in a row
+ * it opens and rejects calls for {@code openDuration}; then a single trial call is let
+ * through (half-open) and its outcome closes or re-opens the circuit.
+ * A trial that ends without an outcome must be reported with {@link #onAbandoned()}; as a
+ * last resort, a trial that reports nothing for {@code openDuration} is replaced by a new one.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openedAt = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong openings = new AtomicLong();
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Ask permission for a call.
+     * @return false if the circuit is open and the call must fail fast
+     */
+    public boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        long now = System.nanoTime();
+        long since = openedAt.get();
+        // Abierto y vencido, o una prueba que lleva todo el plazo sin informar: nueva prueba.
+        // Solo la gana quien mueve openedAt, que pasa a contar desde que sale la prueba
+        if (now - since >= openDurationNanos && openedAt.compareAndSet(since, now)) {
+            state.compareAndSet(current, State.HALF_OPEN);
+            return true;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * The upstream answered, even if with an error that is not its fault.
+     */
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        state.set(State.CLOSED);
+    }
+
+    public void onFailure() {
+        int failures = consecutiveFailures.incrementAndGet();
+        State current = state.get();
+        if (current == State.HALF_OPEN || (current == State.CLOSED && failures >= failureThreshold)) {
+            openedAt.set(System.nanoTime());
+            if (state.compareAndSet(current, State.OPEN)) {
+                openings.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * The call ended without an upstream outcome: cancelled, skipped, or failed before it was
+     * sent. A half-open trial that ends like this must not leave the circuit stuck, so another
+     * trial is allowed right away.
+     */
+    public void onAbandoned() {
+        if (state.compareAndSet(State.HALF_OPEN, State.OPEN)) {
+            // Vencido a propósito: la siguiente llamada será la nueva prueba
+            openedAt.set(System.nanoTime() - openDurationNanos);
+        }
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getOpenings() {
+        return openings.get();
+    }
+}
@@ -0,0 +1,255 @@
+package com.ttsapp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Memory-mapped copies of the most played audio files, capped by total bytes.
+ * Admission follows TinyLFU: while there is room every file gets in, and once the cache is
+ * full a new file only replaces the least recently used ones if it has been requested more
+ * often than each of them. A file played once therefore cannot push out the popular ones.
+ * Entries are keyed by name and checked against the file's size and modification time.
+ * <p>
+ * Hits are served from a concurrent map without locking. Only admission and eviction take
+ * the lock, and the file is mapped after its room has been reserved, outside the lock.
+ * <p>
+ * A mapping is only released when the garbage collector reclaims its buffer, and on
+ * Windows a mapped file cannot be deleted until then. There files are copied to the heap
+ * instead of mapped, so deleting or quarantining a file that was once hot never fails.
+ */
+@Component
+@Slf4j
+public class HotAudioCache {
+
+    private static final class Entry {
+        private final String name;
+        private final ByteBuffer buffer;
+        private final long lastModified;
+        // Momento del último acceso, para elegir a quién echar; se actualiza sin candado
+        private volatile long lastAccess;
+
+        Entry(String name, ByteBuffer buffer, long lastModified) {
+            this.name = name;
+            this.buffer = buffer;
+            this.lastModified = lastModified;
+            this.lastAccess = System.nanoTime();
+        }
+
+        long size() {
+            return buffer.capacity();
+        }
+    }
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long maxFileBytes;
+    private final boolean memoryMapped;
+    private final FrequencySketch sketch;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // Protege el sketch y residentBytes; nunca se tiene mientras se lee un fichero
+    private final ReentrantLock lock = new ReentrantLock();
+    // Bytes de las entradas más los reservados por ficheros que se están cargando
+    private long residentBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong admissions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public HotAudioCache(@Value("${tts.cache.hot.enabled:true}") boolean enabled,
+                         @Value("${tts.cache.hot.max-bytes:67108864}") long maxBytes,
+                         @Value("${tts.cache.hot.max-file-bytes:8388608}") long maxFileBytes,
+                         @Value("${tts.cache.hot.memory-mapped:true}") boolean memoryMapped) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.maxFileBytes = Math.min(maxFileBytes, maxBytes);
+        boolean windows = System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+        this.memoryMapped = memoryMapped && !windows;
+        // Del orden de ficheros de 1 MB que caben en la caché, con margen para los que solo se cuentan
+        this.sketch = new FrequencySketch((int) Math.max(64, Math.min(1 << 20, maxBytes / (256 * 1024))));
+    }
+
+    /**
+     * Contents of an audio file, if it is hot enough to be in memory.
+     * Each call counts as an access for the admission policy.
+     * @param file Audio file
+     * @param size Current size of the file
+     * @param lastModified Current modification time, in milliseconds
+     * @return Read-only buffer over the whole file, or null to read it from disk
+     */
+    public ByteBuffer get(Path file, long size, long lastModified) {
+        if (!enabled || size <= 0 || size > maxFileBytes) {
+            return null;
+        }
+        String name = file.getFileName().toString();
+        recordAccess(name);
+        Entry entry = entries.get(name);
+        if (entry != null) {
+            if (entry.size() == size && entry.lastModified == lastModified) {
+                entry.lastAccess = System.nanoTime();
+                hits.increment();
+                return entry.buffer.duplicate();
+            }
+            remove(entry);
+        }
+        misses.increment();
+        if (!reserve(name, size)) {
+            rejections.incrementAndGet();
+            return null;
+        }
+
+        ByteBuffer buffer;
+        try {
+            buffer = load(file, size);
+        } catch (IOException e) {
+            log.warn("Could not load audio file {}", file, e);
+            release(size);
+            return null;
+        }
+        Entry loaded = new Entry(name, buffer, lastModified);
+        if (entries.putIfAbsent(name, loaded) != null) {
+            // Otra petición lo cargó a la vez; se sirve esta copia y se devuelve el sitio reservado
+            release(size);
+        } else {
+            admissions.incrementAndGet();
+        }
+        return buffer.duplicate();
+    }
+
+    /**
+     * Drop a file from memory, e.g. because it no longer exists.
+     */
+    public void invalidate(String name) {
+        Entry entry = entries.get(name);
+        if (entry != null) {
+            remove(entry);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long hitCount = hits.sum();
+        long requests = hitCount + misses.sum();
+        stats.put("enabled", enabled);
+        stats.put("memoryMapped", memoryMapped);
+        stats.put("entries", entries.size());
+        stats.put("residentBytes", residentBytes());
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.sum());
+        stats.put("hitRatio", requests > 0 ? (double) hitCount / requests : 0.0);
+        stats.put("admissions", admissions.get());
+        stats.put("rejections", rejections.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    private ByteBuffer load(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (memoryMapped) {
+                // El mapeo sigue siendo válido después de cerrar el canal
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Audio file shrank while reading: " + file);
+                }
+            }
+            return buffer.flip().asReadOnlyBuffer();
+        }
+    }
+
+    // El sketch no es thread-safe: si otro hilo lo está usando este acceso no se cuenta.
+    // Perder algún acceso con mucha concurrencia apenas cambia las frecuencias y evita esperar
+    private void recordAccess(String name) {
+        if (lock.tryLock()) {
+            try {
+                sketch.increment(name);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Reserva el sitio del candidato echando a los menos recientes, pero solo si todos ellos
+    // se han pedido menos veces que él; si no, el candidato no entra
+    private boolean reserve(String candidate, long size) {
+        lock.lock();
+        try {
+            long needed = residentBytes + size - maxBytes;
+            if (needed > 0) {
+                int candidateFrequency = sketch.frequency(candidate);
+                List<Entry> byRecency = new ArrayList<>(entries.values());
+                byRecency.sort(Comparator.comparingLong(entry -> entry.lastAccess));
+                List<Entry> victims = new ArrayList<>();
+                long freed = 0;
+                for (Entry entry : byRecency) {
+                    if (sketch.frequency(entry.name) >= candidateFrequency) {
+                        return false;
+                    }
+                    victims.add(entry);
+                    freed += entry.size();
+                    if (freed >= needed) {
+                        break;
+                    }
+                }
+                if (freed < needed) {
+                    return false;
+                }
+                for (Entry victim : victims) {
+                    if (entries.remove(victim.name, victim)) {
+                        residentBytes -= victim.size();
+                        evictions.incrementAndGet();
+                    }
+                }
+            }
+            residentBytes += size;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long size) {
+        lock.lock();
+        try {
+            residentBytes -= size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // La memoria mapeada se libera cuando el recolector reclama el buffer
+    private void remove(Entry entry) {
+        if (entries.remove(entry.name, entry)) {
+            release(entry.size());
+        }
+    }
+
+    private long residentBytes() {
+        lock.lock();
+        try {
+            return residentBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
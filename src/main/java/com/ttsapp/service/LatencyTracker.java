@@ -0,0 +1,46 @@
+package com.ttsapp.service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the most recent latencies in a ring buffer to estimate percentiles.
+ */
+public class LatencyTracker {
+
+    private final AtomicLongArray samples;
+    private final AtomicLong count = new AtomicLong();
+
+    public LatencyTracker(int capacity) {
+        this.samples = new AtomicLongArray(capacity);
+    }
+
+    public void record(long nanos) {
+        long index = count.getAndIncrement();
+        samples.set((int) (index % samples.length()), nanos);
+    }
+
+    public long getSampleCount() {
+        return Math.min(count.get(), samples.length());
+    }
+
+    /**
+     * Estimate a latency percentile over the recorded window.
+     * @param percentile Percentile between 0 and 100
+     * @return Latency in nanoseconds, or -1 if nothing was recorded
+     */
+    public long percentile(double percentile) {
+        int size = (int) getSampleCount();
+        if (size == 0) {
+            return -1;
+        }
+        long[] copy = new long[size];
+        for (int i = 0; i < size; i++) {
+            copy[i] = samples.get(i);
+        }
+        Arrays.sort(copy);
+        int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+        return copy[Math.max(0, Math.min(size - 1, index))];
+    }
+}
@@ -0,0 +1,164 @@
+package com.ttsapp.service;
+
+import com.ttsapp.entity.AudioSegment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes chunk audio into a temporary file as it arrives and moves it into place once
+ * complete. Frames are written through a {@link FileChannel} right after the space reserved
+ * for the Xing header, which is filled in at the end; nothing but the chunk being written
+ * is held in memory. Chunks already present in an earlier file can be copied from it
+ * channel to channel instead of being synthesized again. The position of every chunk in
+ * the new file is recorded so a later edit can do the same.
+ */
+public class Mp3FileWriter implements Closeable {
+
+    private final Mp3FrameJoiner joiner = new Mp3FrameJoiner();
+    private final Path tempFile;
+    private final FileChannel channel;
+    private final FileChannel source;
+    private final List<AudioSegment> segments = new ArrayList<>();
+    private long position;
+
+    /**
+     * @param tempDirectory Directory for the file while it is written; must be on the same
+     *                      file system as the final location so the move is atomic
+     */
+    public Mp3FileWriter(Path tempDirectory) throws IOException {
+        this(tempDirectory, null);
+    }
+
+    /**
+     * @param tempDirectory Directory for the file while it is written
+     * @param sourceFile Earlier file to copy reused segments from, or null
+     */
+    public Mp3FileWriter(Path tempDirectory, Path sourceFile) throws IOException {
+        Files.createDirectories(tempDirectory);
+        // Mismos permisos que un fichero normal (createTempFile los restringe al propietario)
+        this.tempFile = tempDirectory.resolve("tts-" + UUID.randomUUID() + ".part");
+        this.source = sourceFile != null ? FileChannel.open(sourceFile, StandardOpenOption.READ) : null;
+        try {
+            this.channel = FileChannel.open(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            if (source != null) {
+                source.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Append the audio of the next chunk.
+     * @param chunkKey Cache key of the chunk
+     * @param chunk Raw MP3 bytes of the chunk
+     */
+    public void write(String chunkKey, byte[] chunk) throws IOException {
+        Mp3FrameJoiner.Segment segment = joiner.add(chunk);
+        reserveHeader();
+        long start = position;
+        for (ByteBuffer run : segment.runs()) {
+            while (run.hasRemaining()) {
+                position += channel.write(run, position);
+            }
+        }
+        segments.add(new AudioSegment(chunkKey, start, position - start, segment.frames(), segment.samples()));
+    }
+
+    /**
+     * Append a chunk's audio copied from the source file.
+     * @param segment Position of the chunk in the source file
+     */
+    public void copy(AudioSegment segment) throws IOException {
+        if (source == null) {
+            throw new IllegalStateException("No source file to copy segments from");
+        }
+        ByteBuffer header = ByteBuffer.allocate(4);
+        while (header.hasRemaining()) {
+            if (source.read(header, segment.getOffset() + header.position()) < 0) {
+                throw new IOException("Segment beyond the end of the source file");
+            }
+        }
+        int firstHeader = header.getInt(0);
+        if (!Mp3FrameJoiner.isFrameHeader(firstHeader)) {
+            throw new IOException("Segment does not start at an MP3 frame");
+        }
+        joiner.addFrames(firstHeader, segment.getFrames(), segment.getSamples(), segment.getLength());
+        reserveHeader();
+
+        long start = position;
+        source.position(segment.getOffset());
+        long remaining = segment.getLength();
+        while (remaining > 0) {
+            long copied = channel.transferFrom(source, position, remaining);
+            if (copied <= 0) {
+                throw new IOException("Segment beyond the end of the source file");
+            }
+            position += copied;
+            remaining -= copied;
+        }
+        segments.add(new AudioSegment(segment.getChunkKey(), start, segment.getLength(),
+                segment.getFrames(), segment.getSamples()));
+    }
+
+    /**
+     * Write the header, flush the file to disk and move it to its final name.
+     * @param target Final path of the audio file
+     */
+    public void commit(Path target) throws IOException {
+        if (joiner.getTotalFrames() == 0) {
+            throw new IOException("Empty audio response from TTS service");
+        }
+        ByteBuffer header = joiner.buildHeader();
+        long offset = 0;
+        while (header.hasRemaining()) {
+            offset += channel.write(header, offset);
+        }
+        // Los datos llegan al disco antes que el rename: tras un corte de luz no puede quedar
+        // el nombre definitivo apuntando a un fichero vacío o a medias
+        channel.force(true);
+        channel.close();
+        Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public long getDurationMs() {
+        return joiner.getDurationMs();
+    }
+
+    public List<AudioSegment> getSegments() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * Release the channels; if the file was not committed the temporary file is deleted.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+            if (source != null) {
+                source.close();
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private void reserveHeader() {
+        if (position == 0) {
+            // Hueco para la cabecera Xing, que se escribe al terminar
+            position = joiner.headerLength();
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.ttsapp.service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Joins the MP3 audio of several chunks into a single valid stream.
+ * Each chunk is scanned frame by frame: ID3v1/ID3v2 tags, Xing/Info/VBRI headers and any
+ * junk between frames are skipped, and only the audio frames are kept as slices of the
+ * original arrays (the audio payload is never copied). The joined stream starts with one
+ * Xing header ({@link #buildHeader()}) with the total frame count, byte count and a 100-entry
+ * seek table, so players report the right duration and can seek without scanning the file.
+ * Only per-chunk totals are kept, so callers may write each chunk out and drop it.
+ */
+public class Mp3FrameJoiner {
+
+    private static final int[][] BITRATES_KBPS = {
+            // MPEG-1 Layer I, II, III
+            {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+            {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},
+            // MPEG-2/2.5 Layer I, Layer II y III
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},
+    };
+    private static final int[][] SAMPLE_RATES = {
+            {11025, 12000, 8000},  // MPEG-2.5
+            null,                  // reservado
+            {22050, 24000, 16000}, // MPEG-2
+            {44100, 48000, 32000}, // MPEG-1
+    };
+
+    private static final int XING_FLAGS = 0x0001 | 0x0002 | 0x0004; // frames, bytes, TOC
+    private static final int XING_PAYLOAD = 4 + 4 + 4 + 4 + 100;
+
+    private final List<Span> spans = new ArrayList<>();
+    private int templateHeader;
+    private long totalFrames;
+    private long totalSamples;
+    private long totalAudioBytes;
+
+    /**
+     * Audio frames of one chunk.
+     * @param runs Contiguous runs of frames, as slices of the chunk array
+     * @param frames Number of frames
+     * @param samples Number of PCM samples per channel
+     * @param bytes Total bytes of the runs
+     * @param firstHeader Header of the first audio frame, 0 if there are no frames
+     */
+    public record Segment(List<ByteBuffer> runs, int frames, long samples, long bytes, int firstHeader) {
+    }
+
+    private record Span(long samples, long bytes) {
+    }
+
+    /**
+     * Add the audio of the next chunk.
+     * @param chunk Raw MP3 bytes as returned by the engine
+     * @return The frames kept from the chunk
+     */
+    public Segment add(byte[] chunk) {
+        Segment segment = extractFrames(chunk);
+        addFrames(segment.firstHeader(), segment.frames(), segment.samples(), segment.bytes());
+        return segment;
+    }
+
+    /**
+     * Account for frames that are already known, e.g. copied from an earlier file.
+     * @param firstHeader Header of the first frame
+     * @param frames Number of frames
+     * @param samples Number of PCM samples per channel
+     * @param bytes Total bytes of the frames
+     */
+    public void addFrames(int firstHeader, int frames, long samples, long bytes) {
+        if (frames <= 0) {
+            return;
+        }
+        if (templateHeader == 0) {
+            templateHeader = firstHeader;
+        }
+        spans.add(new Span(samples, bytes));
+        totalFrames += frames;
+        totalSamples += samples;
+        totalAudioBytes += bytes;
+    }
+
+    public long getTotalFrames() {
+        return totalFrames;
+    }
+
+    /**
+     * Duration of the joined audio in milliseconds.
+     */
+    public long getDurationMs() {
+        int sampleRate = templateHeader != 0 ? sampleRate(templateHeader) : 0;
+        return sampleRate > 0 ? totalSamples * 1000 / sampleRate : 0;
+    }
+
+    /**
+     * Length of the Xing header frame, known once the first audio frame has been added.
+     * @return Header length in bytes, 0 if no audio has been added yet
+     */
+    public int headerLength() {
+        return templateHeader != 0 ? frameLength(xingFrameHeader()) : 0;
+    }
+
+    /**
+     * Build the Xing header for the audio added so far.
+     * @return Header frame to place before the first audio frame, empty if there is no audio
+     */
+    public ByteBuffer buildHeader() {
+        if (templateHeader == 0) {
+            return ByteBuffer.allocate(0);
+        }
+        int header = xingFrameHeader();
+        int length = frameLength(header);
+        long totalBytes = length + totalAudioBytes;
+
+        ByteBuffer frame = ByteBuffer.allocate(length);
+        frame.putInt(header);
+        frame.position(4 + sideInfoLength(templateHeader));
+        frame.put(new byte[]{'X', 'i', 'n', 'g'});
+        frame.putInt(XING_FLAGS);
+        frame.putInt((int) totalFrames);
+        frame.putInt((int) totalBytes);
+        frame.put(buildSeekTable(length, totalBytes));
+        frame.clear();
+        return frame;
+    }
+
+    /**
+     * Scan the audio frames of an MP3 buffer, skipping tags and VBR info headers.
+     * @param data MP3 bytes
+     * @return Frames found, as slices of {@code data}
+     */
+    public static Segment extractFrames(byte[] data) {
+        List<ByteBuffer> runs = new ArrayList<>();
+        int frames = 0;
+        long samples = 0;
+        long bytes = 0;
+        int runStart = -1;
+        int runEnd = -1;
+        int firstHeader = 0;
+
+        int pos = skipId3v2(data, 0);
+        while (pos + 4 <= data.length) {
+            int header = readHeader(data, pos);
+            int length = frameLength(header);
+            if (length <= 0 || pos + length > data.length) {
+                // No es una trama (etiqueta, basura o trama truncada): avanzar y resincronizar
+                if (data[pos] == 'I' && pos + 10 <= data.length && data[pos + 1] == 'D' && data[pos + 2] == '3') {
+                    pos = skipId3v2(data, pos);
+                } else if (data[pos] == 'T' && pos + 128 <= data.length && data[pos + 1] == 'A' && data[pos + 2] == 'G') {
+                    pos += 128;
+                } else {
+                    pos++;
+                }
+                continue;
+            }
+            if (isInfoFrame(data, pos, header)) {
+                pos += length;
+                continue;
+            }
+            if (firstHeader == 0) {
+                firstHeader = header;
+            }
+            if (pos != runEnd) {
+                if (runStart >= 0) {
+                    runs.add(ByteBuffer.wrap(data, runStart, runEnd - runStart).slice());
+                }
+                runStart = pos;
+            }
+            runEnd = pos + length;
+            frames++;
+            samples += samplesPerFrame(header);
+            bytes += length;
+            pos += length;
+        }
+        if (runStart >= 0) {
+            runs.add(ByteBuffer.wrap(data, runStart, runEnd - runStart).slice());
+        }
+        return new Segment(runs, frames, samples, bytes, firstHeader);
+    }
+
+    /**
+     * Check whether four bytes, read big-endian, form a valid MPEG audio frame header.
+     */
+    public static boolean isFrameHeader(int header) {
+        return frameLength(header) > 0;
+    }
+
+    // Misma versión, capa, frecuencia y canales; la tasa mínima en la que cabe la cabecera Xing
+    private int xingFrameHeader() {
+        int needed = 4 + sideInfoLength(templateHeader) + XING_PAYLOAD;
+        int base = (templateHeader & ~0xF200) | 0x10000; // sin bitrate, sin padding, sin CRC
+        for (int index = 1; index < 15; index++) {
+            int candidate = base | (index << 12);
+            if (frameLength(candidate) >= needed) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("Cannot fit Xing header in an MP3 frame");
+    }
+
+    private static int sideInfoLength(int header) {
+        int version = (header >>> 19) & 0x3;
+        boolean mono = ((header >>> 6) & 0x3) == 3;
+        return version == 3 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+    }
+
+    // TOC Xing: para cada 1% de la duración, posición en el fichero en 1/256 del tamaño total
+    private byte[] buildSeekTable(int xingLength, long totalBytes) {
+        byte[] toc = new byte[100];
+        int index = 0;
+        long segmentSamples = 0;
+        long segmentBytes = 0;
+        for (int i = 0; i < 100; i++) {
+            double targetSample = totalSamples * (i / 100.0);
+            while (index < spans.size() - 1 && segmentSamples + spans.get(index).samples() <= targetSample) {
+                segmentSamples += spans.get(index).samples();
+                segmentBytes += spans.get(index).bytes();
+                index++;
+            }
+            Span span = spans.get(index);
+            double fraction = span.samples() > 0 ? (targetSample - segmentSamples) / span.samples() : 0;
+            double position = xingLength + segmentBytes + fraction * span.bytes();
+            toc[i] = (byte) Math.min(255, (int) (position * 256 / totalBytes));
+        }
+        return toc;
+    }
+
+    private static boolean isInfoFrame(byte[] data, int pos, int header) {
+        boolean crc = ((header >>> 16) & 0x1) == 0;
+        int offset = pos + 4 + (crc ? 2 : 0) + sideInfoLength(header);
+        if (matches(data, offset, "Xing") || matches(data, offset, "Info")) {
+            return true;
+        }
+        return matches(data, pos + 4 + 32, "VBRI");
+    }
+
+    private static boolean matches(byte[] data, int offset, String tag) {
+        if (offset + tag.length() > data.length) {
+            return false;
+        }
+        for (int i = 0; i < tag.length(); i++) {
+            if (data[offset + i] != tag.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipId3v2(byte[] data, int pos) {
+        if (pos + 10 > data.length || data[pos] != 'I' || data[pos + 1] != 'D' || data[pos + 2] != '3') {
+            return pos;
+        }
+        // Tamaño "syncsafe": 4 bytes de 7 bits
+        int size = ((data[pos + 6] & 0x7F) << 21) | ((data[pos + 7] & 0x7F) << 14)
+                | ((data[pos + 8] & 0x7F) << 7) | (data[pos + 9] & 0x7F);
+        boolean footer = (data[pos + 5] & 0x10) != 0;
+        return Math.min(data.length, pos + 10 + size + (footer ? 10 : 0));
+    }
+
+    private static int readHeader(byte[] data, int pos) {
+        return ((data[pos] & 0xFF) << 24) | ((data[pos + 1] & 0xFF) << 16)
+                | ((data[pos + 2] & 0xFF) << 8) | (data[pos + 3] & 0xFF);
+    }
+
+    private static int sampleRate(int header) {
+        int version = (header >>> 19) & 0x3;
+        int index = (header >>> 10) & 0x3;
+        if (SAMPLE_RATES[version] == null || index == 3) {
+            return 0;
+        }
+        return SAMPLE_RATES[version][index];
+    }
+
+    private static int samplesPerFrame(int header) {
+        int version = (header >>> 19) & 0x3;
+        int layer = (header >>> 17) & 0x3;
+        if (layer == 3) return 384;                 // Layer I
+        if (layer == 2) return 1152;                // Layer II
+        return version == 3 ? 1152 : 576;           // Layer III
+    }
+
+    /**
+     * Length in bytes of the frame described by a header, or -1 if it is not a valid header.
+     */
+    private static int frameLength(int header) {
+        if ((header & 0xFFE00000) != 0xFFE00000) {
+            return -1;
+        }
+        int version = (header >>> 19) & 0x3;
+        int layer = (header >>> 17) & 0x3;
+        int bitrateIndex = (header >>> 12) & 0xF;
+        int padding = (header >>> 9) & 0x1;
+        int sampleRate = sampleRate(header);
+        if (layer == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRate == 0) {
+            return -1;
+        }
+
+        boolean mpeg1 = version == 3;
+        int table = mpeg1 ? 3 - layer : (layer == 3 ? 3 : 4);
+        int bitrate = BITRATES_KBPS[table][bitrateIndex] * 1000;
+        if (layer == 3) {
+            return (12 * bitrate / sampleRate + padding) * 4;
+        }
+        int coefficient = (layer == 1 && !mpeg1) ? 72 : 144;
+        return coefficient * bitrate / sampleRate + padding;
+    }
+}
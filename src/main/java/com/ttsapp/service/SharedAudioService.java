@@ -0,0 +1,261 @@
+package com.ttsapp.service;
+
+import com.ttsapp.entity.StoredAudio;
+import com.ttsapp.repository.StoredAudioRepository;
+import com.ttsapp.repository.TextEntryRepository;
+import com.ttsapp.service.engine.TtsEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reference-counted audio files shared across text entries and users.
+ * Entries with the same normalized content and voice point to one file: a new entry
+ * reuses the existing file instead of synthesizing it again, and the file is only
+ * deleted once the last entry that references it is gone.
+ */
+@Service
+@Slf4j
+public class SharedAudioService {
+
+    private final StoredAudioRepository storedAudioRepository;
+    private final TextEntryRepository textEntryRepository;
+    private final TtsService ttsService;
+    private final TtsEngine ttsEngine;
+    private final TransactionTemplate transaction;
+
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong synthesized = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+    private final AtomicLong filesDeleted = new AtomicLong();
+
+    public SharedAudioService(StoredAudioRepository storedAudioRepository,
+                              TextEntryRepository textEntryRepository,
+                              TtsService ttsService,
+                              TtsEngine ttsEngine,
+                              PlatformTransactionManager transactionManager) {
+        this.storedAudioRepository = storedAudioRepository;
+        this.textEntryRepository = textEntryRepository;
+        this.ttsService = ttsService;
+        this.ttsEngine = ttsEngine;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Take a reference to the audio of the text, if it already exists.
+     * @param text Text content
+     * @param voice Voice
+     * @return The shared audio, with its reference count already incremented
+     */
+    @Transactional
+    public Optional<StoredAudio> acquireExisting(String text, String voice) {
+        return storedAudioRepository.findByContentHash(contentHash(text, voice))
+                .filter(stored -> ttsService.audioFileExists(stored.getAudioUrl()))
+                .map(this::addReference);
+    }
+
+    /**
+     * Take a reference to the audio of the text, synthesizing it if nobody has it yet.
+     * Synthesis can take as long as the upstream service needs, so it runs with no
+     * transaction open; only the lookup and the registration of the new file use the
+     * database, each in a short transaction of its own.
+     * @param text Text content
+     * @param voice Voice
+     * @param previous Audio of an earlier version of the same entry, whose unchanged chunks
+     *                 are reused when synthesizing; may be null
+     * @return The shared audio, with its reference count already incremented
+     */
+    public StoredAudio obtain(String text, String voice, TtsService.AudioFile previous) {
+        // Dentro de una transacción la conexión quedaría ocupada durante toda la síntesis
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Audio must not be synthesized inside a transaction");
+        }
+        String hash = contentHash(text, voice);
+        StoredAudio existing = transaction.execute(status -> storedAudioRepository.findByContentHash(hash)
+                .filter(stored -> ttsService.audioFileExists(stored.getAudioUrl()))
+                .map(this::addReference)
+                .orElse(null));
+        if (existing != null) {
+            return existing;
+        }
+
+        TtsService.AudioFile audioFile = ttsService.generateAudioFile(text, voice, previous);
+        synthesized.incrementAndGet();
+        return register(hash, audioFile);
+    }
+
+    /**
+     * Drop a reference to an audio file. When no entry references it any more the record
+     * is removed and the file is deleted once the current transaction commits.
+     * @param audioUrl URL of the audio file
+     */
+    @Transactional
+    public void release(String audioUrl) {
+        if (audioUrl == null || audioUrl.isEmpty()) {
+            return;
+        }
+        released.incrementAndGet();
+        StoredAudio stored = storedAudioRepository.findByAudioUrl(audioUrl).orElse(null);
+        if (stored == null) {
+            // Audio anterior a la deduplicación: solo lo usaba la entrada que lo suelta
+            deleteFileAfterCommit(audioUrl);
+            return;
+        }
+        stored.setRefCount(stored.getRefCount() - 1);
+        if (stored.getRefCount() <= 0) {
+            storedAudioRepository.delete(stored);
+            deleteFileAfterCommit(audioUrl);
+        }
+    }
+
+    /**
+     * Confirm that nobody holds a reference to an audio file and drop its shared record, so
+     * the caller can remove the file. A file is an orphan only if it has no shared record, or
+     * one with no references left, and no text entry points to it: references are taken before
+     * the entry that uses them is saved. Runs under the record's row lock, so it cannot race
+     * with a new entry taking a reference to the same file.
+     * @param audioUrl URL of the audio file
+     * @return true if the file is an orphan
+     */
+    @Transactional
+    public boolean claimOrphan(String audioUrl) {
+        StoredAudio stored = storedAudioRepository.findByAudioUrl(audioUrl).orElse(null);
+        // Referencia tomada cuya entrada aún no se ha guardado (edición, alta o lote en curso)
+        if (stored != null && stored.getRefCount() > 0) {
+            return false;
+        }
+        if (textEntryRepository.existsByAudioUrl(audioUrl)) {
+            return false;
+        }
+        if (stored != null) {
+            storedAudioRepository.delete(stored);
+        }
+        return true;
+    }
+
+    /**
+     * The file of a shared audio record with the position of each chunk, without taking a
+     * reference. Used to reuse the unchanged chunks when the text of an entry is edited.
+     * @param audioUrl URL of the audio file
+     */
+    @Transactional(readOnly = true)
+    public Optional<TtsService.AudioFile> findAudioFile(String audioUrl) {
+        if (audioUrl == null) {
+            return Optional.empty();
+        }
+        return storedAudioRepository.findByAudioUrl(audioUrl)
+                .map(stored -> new TtsService.AudioFile(stored.getAudioUrl(), new ArrayList<>(stored.getSegments()), 0));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("files", storedAudioRepository.count());
+        stats.put("reused", reused.get());
+        stats.put("synthesized", synthesized.get());
+        stats.put("released", released.get());
+        stats.put("filesDeleted", filesDeleted.get());
+        return stats;
+    }
+
+    private StoredAudio addReference(StoredAudio stored) {
+        stored.setRefCount(stored.getRefCount() + 1);
+        reused.incrementAndGet();
+        log.info("Reusing shared audio {} (references: {})", stored.getAudioUrl(), stored.getRefCount());
+        return stored;
+    }
+
+    private StoredAudio register(String hash, TtsService.AudioFile audioFile) {
+        StoredAudio stored;
+        try {
+            // Un alta simultánea del mismo contenido choca con la restricción única en vez de duplicar el fichero
+            stored = transaction.execute(status -> {
+                StoredAudio existing = storedAudioRepository.findByContentHash(hash).orElse(null);
+                if (existing == null) {
+                    return storedAudioRepository.saveAndFlush(StoredAudio.builder()
+                            .contentHash(hash)
+                            .audioUrl(audioFile.audioUrl())
+                            .refCount(1)
+                            .segments(new ArrayList<>(audioFile.segments()))
+                            .build());
+                }
+                if (ttsService.audioFileExists(existing.getAudioUrl())) {
+                    // Otra petición con el mismo contenido terminó antes mientras se sintetizaba
+                    return addReference(existing);
+                }
+                // El registro existía pero su fichero no: se sustituye por el recién generado
+                log.warn("Shared audio {} was missing, replaced by {}", existing.getAudioUrl(), audioFile.audioUrl());
+                existing.setAudioUrl(audioFile.audioUrl());
+                existing.setSegments(new ArrayList<>(audioFile.segments()));
+                existing.setRefCount(existing.getRefCount() + 1);
+                return existing;
+            });
+        } catch (DataIntegrityViolationException e) {
+            stored = transaction.execute(status -> storedAudioRepository.findByContentHash(hash)
+                    .map(this::addReference)
+                    .orElse(null));
+            if (stored == null) {
+                ttsService.deleteAudioFile(audioFile.audioUrl());
+                throw new RuntimeException("Failed to register audio file", e);
+            }
+        }
+        if (!stored.getAudioUrl().equals(audioFile.audioUrl())) {
+            log.info("Same audio registered concurrently, discarding {}", audioFile.audioUrl());
+            ttsService.deleteAudioFile(audioFile.audioUrl());
+        }
+        return stored;
+    }
+
+    private void deleteFileAfterCommit(String audioUrl) {
+        Runnable delete = () -> {
+            try {
+                ttsService.deleteAudioFile(audioUrl);
+                filesDeleted.incrementAndGet();
+            } catch (RuntimeException e) {
+                log.warn("Could not delete audio file {}", audioUrl, e);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    delete.run();
+                }
+            });
+        } else {
+            delete.run();
+        }
+    }
+
+    private String contentHash(String text, String voice) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC)
+                .replaceAll("\\s+", " ")
+                .trim();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(ttsEngine.getName().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(voice.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.ttsapp.service;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller runs the work and
+ * every caller that arrives while it is still pending receives the same result.
+ * Once the work finishes the key is released, so later calls run it again.
+ *
+ * @param <T> Result type
+ */
+public class SingleFlight<T> {
+
+    private final ConcurrentHashMap<String, CompletableFuture<T>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Run the work, or join the identical call already in flight. The work is subscribed
+     * once per key, with the context of the caller that started it; cancelling one caller
+     * does not cancel it for the others.
+     * @param key Identity of the work
+     * @param work Work to subscribe if nobody else is running it
+     * @return Mono with the shared result
+     */
+    public Mono<T> execute(String key, Supplier<Mono<T>> work) {
+        return Mono.deferContextual(context -> {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            CompletableFuture<T> existing = pending.putIfAbsent(key, future);
+            if (existing != null) {
+                coalesced.incrementAndGet();
+                return Mono.fromFuture(existing, true);
+            }
+
+            executions.incrementAndGet();
+            work.get().contextWrite(context).subscribe(
+                    result -> {
+                        pending.remove(key, future);
+                        future.complete(result);
+                    },
+                    error -> {
+                        pending.remove(key, future);
+                        future.completeExceptionally(error);
+                    },
+                    () -> {
+                        pending.remove(key, future);
+                        future.complete(null);
+                    });
+            return Mono.fromFuture(future, true);
+        });
+    }
+
+    public int getInFlight() {
+        return pending.size();
+    }
+
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+}
@@ -0,0 +1,138 @@
+package com.ttsapp.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory cache of finished MP3 responses for /api/tts/speak, keyed by (text, voice).
+ * Bounded by the total number of audio bytes held, with least recently used eviction
+ * and a time-to-live per entry.
+ */
+@Component
+public class SpeakResponseCache {
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long ttlNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    public SpeakResponseCache(@Value("${tts.cache.speak.enabled:true}") boolean enabled,
+                              @Value("${tts.cache.speak.max-bytes:67108864}") long maxBytes,
+                              @Value("${tts.cache.speak.ttl:10m}") Duration ttl) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Get a cached response.
+     * @param text Requested text
+     * @param voice Requested voice
+     * @return Audio bytes, or null if absent or expired
+     */
+    public byte[] get(String text, String voice) {
+        if (!enabled) {
+            return null;
+        }
+        Key key = new Key(text, voice);
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && now - entry.expiresAt() >= 0) {
+                entries.remove(key);
+                totalBytes -= entry.data().length;
+                expirations.incrementAndGet();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return entry.data();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cache a response. The array must not be modified afterwards.
+     * @param text Requested text
+     * @param voice Requested voice
+     * @param data Audio bytes
+     */
+    public void put(String text, String voice, byte[] data) {
+        if (!enabled || data == null || data.length == 0 || data.length > maxBytes) {
+            return;
+        }
+        Key key = new Key(text, voice);
+        Entry entry = new Entry(data, System.nanoTime() + ttlNanos);
+        lock.lock();
+        try {
+            Entry previous = entries.put(key, entry);
+            totalBytes += data.length - (previous != null ? previous.data().length : 0);
+            evictOverBudget();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        lock.lock();
+        try {
+            stats.put("entries", entries.size());
+            stats.put("bytes", totalBytes);
+        } finally {
+            lock.unlock();
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        stats.put("hitRatio", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0.0);
+        return stats;
+    }
+
+    private void evictOverBudget() {
+        long now = System.nanoTime();
+        Iterator<Entry> it = entries.values().iterator();
+        // Primero los menos usados; de paso se descartan los caducados
+        while (it.hasNext() && totalBytes > maxBytes) {
+            Entry eldest = it.next();
+            totalBytes -= eldest.data().length;
+            it.remove();
+            if (now - eldest.expiresAt() >= 0) {
+                expirations.incrementAndGet();
+            } else {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private record Key(String text, String voice) {
+    }
+
+    private record Entry(byte[] data, long expiresAt) {
+    }
+}
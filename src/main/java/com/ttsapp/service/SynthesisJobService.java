@@ -0,0 +1,195 @@
+package com.ttsapp.service;
+
+import com.ttsapp.entity.StoredAudio;
+import com.ttsapp.entity.TextEntry;
+import com.ttsapp.repository.TextEntryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs audio synthesis for text entries outside the HTTP request.
+ * Entries are persisted as PENDING and a bounded worker pool generates and stores
+ * their audio, moving them to COMPLETED or FAILED. A job only writes its result if the
+ * entry is still the one it was started for; if the text was edited or deleted meanwhile the
+ * audio it generated is released instead.
+ */
+@Service
+@Slf4j
+public class SynthesisJobService {
+
+    private static final String DEFAULT_VOICE = "es-ES-ElviraNeural";
+
+    private final TextEntryRepository textEntryRepository;
+    private final SharedAudioService sharedAudioService;
+    private final ThreadPoolTaskExecutor synthesisJobExecutor;
+    private final TransactionTemplate transaction;
+
+    @Value("${tts.jobs.async:false}")
+    private boolean asyncEnabled;
+
+    public SynthesisJobService(TextEntryRepository textEntryRepository,
+                               SharedAudioService sharedAudioService,
+                               ThreadPoolTaskExecutor synthesisJobExecutor,
+                               PlatformTransactionManager transactionManager) {
+        this.textEntryRepository = textEntryRepository;
+        this.sharedAudioService = sharedAudioService;
+        this.synthesisJobExecutor = synthesisJobExecutor;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    public boolean isAsyncEnabled() {
+        return asyncEnabled;
+    }
+
+    /**
+     * Queue the synthesis of a persisted entry. If called inside a transaction the job
+     * is queued only after it commits, so workers always find the entry.
+     * @param entryId Text entry ID (also the job ID)
+     * @param content Text to synthesize
+     * @param voice Voice to use
+     */
+    public void submit(Long entryId, String content, String voice) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(entryId, content, voice);
+                }
+            });
+        } else {
+            enqueue(entryId, content, voice);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("async", asyncEnabled);
+        stats.put("workers", synthesisJobExecutor.getMaxPoolSize());
+        stats.put("active", synthesisJobExecutor.getActiveCount());
+        stats.put("queued", synthesisJobExecutor.getQueueSize());
+        return stats;
+    }
+
+    /**
+     * Re-queue jobs interrupted by a restart.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingJobs() {
+        List<TextEntry> pending = textEntryRepository.findByStatusIn(
+                List.of(TextEntry.AudioStatus.PENDING, TextEntry.AudioStatus.PROCESSING));
+        if (!pending.isEmpty()) {
+            log.info("Resuming {} pending synthesis jobs", pending.size());
+        }
+        for (TextEntry entry : pending) {
+            enqueue(entry.getId(), entry.getContent(), entry.getVoice() != null ? entry.getVoice() : DEFAULT_VOICE);
+        }
+    }
+
+    private void enqueue(Long entryId, String content, String voice) {
+        try {
+            // Con el contexto de seguridad de quien encola, para que el planificador sepa de qué usuario es
+            synthesisJobExecutor.execute(DelegatingSecurityContextRunnable.create(() -> process(entryId, content, voice), null));
+            log.debug("Synthesis job {} queued", entryId);
+        } catch (TaskRejectedException e) {
+            log.warn("Synthesis queue full, job {} rejected", entryId);
+            updateStatus(entryId, TextEntry.AudioStatus.FAILED);
+        }
+    }
+
+    private void process(Long entryId, String content, String voice) {
+        // Un trabajo retomado tras reiniciar ya puede estar en PROCESSING
+        boolean started = Boolean.TRUE.equals(transaction.execute(status -> textEntryRepository.findById(entryId)
+                .filter(entry -> entry.getStatus() == TextEntry.AudioStatus.PENDING
+                        || entry.getStatus() == TextEntry.AudioStatus.PROCESSING)
+                .filter(entry -> isSameAudio(entry, content, voice))
+                .map(entry -> {
+                    entry.setStatus(TextEntry.AudioStatus.PROCESSING);
+                    textEntryRepository.save(entry);
+                    return true;
+                })
+                .orElse(false)));
+        if (!started) {
+            log.info("Synthesis job {} skipped: text entry was deleted or changed", entryId);
+            return;
+        }
+
+        StoredAudio audio;
+        try {
+            audio = sharedAudioService.obtain(content, voice, null);
+        } catch (Exception e) {
+            log.error("Synthesis job {} failed", entryId, e);
+            transaction.executeWithoutResult(status -> textEntryRepository.findById(entryId)
+                    .filter(entry -> isCurrent(entry, content, voice))
+                    .ifPresent(entry -> {
+                        entry.setStatus(TextEntry.AudioStatus.FAILED);
+                        textEntryRepository.save(entry);
+                    }));
+            return;
+        }
+
+        boolean completed;
+        try {
+            completed = Boolean.TRUE.equals(transaction.execute(status -> complete(entryId, content, voice, audio)));
+        } catch (RuntimeException e) {
+            sharedAudioService.release(audio.getAudioUrl());
+            throw e;
+        }
+        if (completed) {
+            log.info("Synthesis job {} completed: {}", entryId, audio.getAudioUrl());
+        } else {
+            log.info("Synthesis job {} discarded: text entry was deleted or changed", entryId);
+        }
+    }
+
+    // Guarda el audio solo si la entrada sigue siendo la de este trabajo; si no, lo suelta
+    private boolean complete(Long entryId, String content, String voice, StoredAudio audio) {
+        TextEntry entry = textEntryRepository.findById(entryId).orElse(null);
+        if (entry == null || !isCurrent(entry, content, voice)) {
+            // Borrada, o editada mientras se generaba el audio: la edición ya tiene el suyo
+            sharedAudioService.release(audio.getAudioUrl());
+            return false;
+        }
+        if (entry.getAudioUrl() != null) {
+            // La entrada ya tenía audio (p. ej. un trabajo retomado tras reiniciar): se suelta su referencia
+            sharedAudioService.release(entry.getAudioUrl());
+        }
+        entry.setAudioUrl(audio.getAudioUrl());
+        entry.setStatus(TextEntry.AudioStatus.COMPLETED);
+        textEntryRepository.save(entry);
+        return true;
+    }
+
+    // Sigue en manos de este trabajo: nadie la ha editado ni completado mientras tanto
+    private static boolean isCurrent(TextEntry entry, String content, String voice) {
+        return entry.getStatus() == TextEntry.AudioStatus.PROCESSING && isSameAudio(entry, content, voice);
+    }
+
+    private static boolean isSameAudio(TextEntry entry, String content, String voice) {
+        String entryVoice = entry.getVoice() != null ? entry.getVoice() : DEFAULT_VOICE;
+        return content.equals(entry.getContent()) && voice.equals(entryVoice);
+    }
+
+    private boolean updateStatus(Long entryId, TextEntry.AudioStatus status) {
+        return textEntryRepository.findById(entryId)
+                .map(entry -> {
+                    entry.setStatus(status);
+                    textEntryRepository.save(entry);
+                    return true;
+                })
+                .orElse(false);
+    }
+}
@@ -0,0 +1,289 @@
+package com.ttsapp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.util.context.Context;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Decides which pending upstream request gets the next synthesis slot.
+ * Interactive work (/api/tts/speak) goes ahead of bulk work (text entries, documents,
+ * batches) and bulk work can never take the slots reserved for interactive requests,
+ * so a large document cannot delay a short speak call. Within each class every user has
+ * their own queue and users are served in turn, so one user's backlog does not hold up
+ * another user's requests.
+ * The class and user travel in the Reactor context; see {@link #context(Priority)}.
+ */
+@Component
+@Slf4j
+public class SynthesisScheduler {
+
+    public enum Priority {
+        INTERACTIVE, BULK
+    }
+
+    public record Ticket(Priority priority, String user) {
+    }
+
+    private static final Object CONTEXT_KEY = Ticket.class;
+    private static final String SYSTEM_USER = "system";
+    // Trabajo sin contexto (p. ej. trabajos retomados tras un reinicio)
+    private static final Ticket DEFAULT_TICKET = new Ticket(Priority.BULK, SYSTEM_USER);
+
+    private final boolean enabled;
+    private final int slots;
+    private final int bulkSlots;
+    private final int interactiveWeight;
+
+    // Todo el estado de las colas se protege con este lock; las secciones críticas son cortas.
+    // Lo toman hilos virtuales (peticiones, trabajos y lotes), que con synchronized quedarían fijados
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Priority, FairQueue> queues = new EnumMap<>(Priority.class);
+    private final Map<Priority, ClassStats> classStats = new EnumMap<>(Priority.class);
+    private int running;
+    private int runningBulk;
+    // Concesiones seguidas a interactivas mientras había trabajo masivo esperando
+    private int interactiveStreak;
+
+    public SynthesisScheduler(@Value("${tts.scheduler.enabled:true}") boolean enabled,
+                              @Value("${tts.scheduler.slots:8}") int slots,
+                              @Value("${tts.scheduler.reserved-interactive:2}") int reservedInteractive,
+                              @Value("${tts.scheduler.interactive-weight:4}") int interactiveWeight) {
+        this.enabled = enabled;
+        this.slots = Math.max(1, slots);
+        this.bulkSlots = Math.max(1, this.slots - Math.max(0, reservedInteractive));
+        this.interactiveWeight = Math.max(1, interactiveWeight);
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new FairQueue());
+            classStats.put(priority, new ClassStats());
+        }
+    }
+
+    /**
+     * Context entry that marks the work below it with a class and the current user.
+     * The user is read here, on the calling thread, because the work may later run on
+     * threads that have no security context.
+     * @param priority Class of the work
+     * @return Context to pass to {@code contextWrite}
+     */
+    public static Context context(Priority priority) {
+        return Context.of(CONTEXT_KEY, new Ticket(priority, currentUser()));
+    }
+
+    /**
+     * Run an upstream call once the scheduler grants it a slot. The slot is held until
+     * the call completes, fails or is cancelled.
+     * @param call Upstream call
+     * @return Result of the call
+     */
+    public <T> Mono<T> schedule(Supplier<Mono<T>> call) {
+        if (!enabled) {
+            return Mono.defer(call);
+        }
+        return Mono.deferContextual(context -> {
+            Waiter waiter = new Waiter(context.getOrDefault(CONTEXT_KEY, DEFAULT_TICKET));
+            return Mono.<Void>create(sink -> enqueue(waiter, sink))
+                    .then(Mono.defer(call))
+                    .doFinally(signal -> finish(waiter));
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("slots", slots);
+        stats.put("bulkSlots", bulkSlots);
+        lock.lock();
+        try {
+            stats.put("running", running);
+            for (Priority priority : Priority.values()) {
+                FairQueue queue = queues.get(priority);
+                ClassStats classStat = classStats.get(priority);
+                Map<String, Object> perClass = new HashMap<>();
+                perClass.put("queued", queue.size);
+                perClass.put("queuedUsers", queue.rotation.size());
+                perClass.put("maxQueued", classStat.maxQueued);
+                perClass.put("granted", classStat.granted.get());
+                long granted = classStat.granted.get();
+                perClass.put("avgWaitMs", granted > 0 ? classStat.totalWaitNanos.get() / 1_000_000.0 / granted : 0.0);
+                perClass.put("p99WaitMs", Math.max(0, classStat.waits.percentile(99)) / 1_000_000.0);
+                stats.put(priority.name().toLowerCase(), perClass);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return stats;
+    }
+
+    private void enqueue(Waiter waiter, MonoSink<Void> sink) {
+        List<Waiter> granted = new ArrayList<>();
+        lock.lock();
+        try {
+            if (waiter.state != State.NEW) {
+                return; // cancelado antes de llegar a la cola
+            }
+            waiter.sink = sink;
+            waiter.state = State.WAITING;
+            waiter.enqueuedNanos = System.nanoTime();
+            FairQueue queue = queues.get(waiter.ticket.priority());
+            queue.add(waiter);
+            ClassStats classStat = classStats.get(waiter.ticket.priority());
+            classStat.maxQueued = Math.max(classStat.maxQueued, queue.size);
+            dispatch(granted);
+        } finally {
+            lock.unlock();
+        }
+        signal(granted);
+    }
+
+    private void finish(Waiter waiter) {
+        List<Waiter> granted = new ArrayList<>();
+        lock.lock();
+        try {
+            switch (waiter.state) {
+                case WAITING -> queues.get(waiter.ticket.priority()).remove(waiter);
+                case GRANTED -> {
+                    running--;
+                    if (waiter.ticket.priority() == Priority.BULK) {
+                        runningBulk--;
+                    }
+                }
+                default -> {
+                }
+            }
+            waiter.state = State.DONE;
+            dispatch(granted);
+        } finally {
+            lock.unlock();
+        }
+        signal(granted);
+    }
+
+    // Reparte los huecos libres; se llama con el lock tomado
+    private void dispatch(List<Waiter> granted) {
+        while (running < slots) {
+            Waiter next = pickNext();
+            if (next == null) {
+                return;
+            }
+            next.state = State.GRANTED;
+            running++;
+            if (next.ticket.priority() == Priority.BULK) {
+                runningBulk++;
+            }
+            long waitNanos = System.nanoTime() - next.enqueuedNanos;
+            ClassStats classStat = classStats.get(next.ticket.priority());
+            classStat.granted.incrementAndGet();
+            classStat.totalWaitNanos.addAndGet(waitNanos);
+            classStat.waits.record(waitNanos);
+            granted.add(next);
+        }
+    }
+
+    // Interactivas primero, pero cada interactiveWeight concesiones pasa una masiva si está esperando,
+    // para que el trabajo masivo no se quede parado del todo
+    private Waiter pickNext() {
+        FairQueue interactive = queues.get(Priority.INTERACTIVE);
+        FairQueue bulk = queues.get(Priority.BULK);
+        boolean bulkEligible = bulk.size > 0 && runningBulk < bulkSlots;
+        if (!bulkEligible) {
+            interactiveStreak = 0;
+            return interactive.poll();
+        }
+        if (interactive.size == 0 || interactiveStreak >= interactiveWeight) {
+            interactiveStreak = 0;
+            return bulk.poll();
+        }
+        interactiveStreak++;
+        return interactive.poll();
+    }
+
+    private static void signal(List<Waiter> granted) {
+        // Fuera del lock: la petición al servicio TTS arranca en el hilo que la concede
+        granted.forEach(waiter -> waiter.sink.success());
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : SYSTEM_USER;
+    }
+
+    private enum State {
+        NEW, WAITING, GRANTED, DONE
+    }
+
+    private static final class Waiter {
+        private final Ticket ticket;
+        private MonoSink<Void> sink;
+        private State state = State.NEW;
+        private long enqueuedNanos;
+
+        private Waiter(Ticket ticket) {
+            this.ticket = ticket;
+        }
+    }
+
+    // Una cola FIFO por usuario; los usuarios con trabajo pendiente se atienden por turnos
+    private static final class FairQueue {
+        private final Map<String, ArrayDeque<Waiter>> byUser = new HashMap<>();
+        private final ArrayDeque<String> rotation = new ArrayDeque<>();
+        private int size;
+
+        private void add(Waiter waiter) {
+            byUser.computeIfAbsent(waiter.ticket.user(), user -> {
+                rotation.addLast(user);
+                return new ArrayDeque<>();
+            }).addLast(waiter);
+            size++;
+        }
+
+        private Waiter poll() {
+            String user = rotation.pollFirst();
+            if (user == null) {
+                return null;
+            }
+            ArrayDeque<Waiter> userQueue = byUser.get(user);
+            Waiter waiter = userQueue.pollFirst();
+            size--;
+            if (userQueue.isEmpty()) {
+                byUser.remove(user);
+            } else {
+                rotation.addLast(user);
+            }
+            return waiter;
+        }
+
+        private void remove(Waiter waiter) {
+            String user = waiter.ticket.user();
+            ArrayDeque<Waiter> userQueue = byUser.get(user);
+            if (userQueue != null && userQueue.remove(waiter)) {
+                size--;
+                if (userQueue.isEmpty()) {
+                    byUser.remove(user);
+                    rotation.remove(user);
+                }
+            }
+        }
+    }
+
+    private static final class ClassStats {
+        private final AtomicLong granted = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final LatencyTracker waits = new LatencyTracker(1024);
+        private int maxQueued;
+    }
+}
@@ -0,0 +1,255 @@
+package com.ttsapp.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.BreakIterator;
+import java.text.StringCharacterIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits long texts into chunks accepted by the upstream TTS service.
+ * Whole sentences are packed greedily into each chunk; sentences that do not fit
+ * are split at word boundaries, and only words longer than a whole chunk are cut
+ * (always at code point boundaries). Limits apply both to the number of characters
+ * and to the URL-encoded length of the chunk, so the request query never exceeds it.
+ * A paragraph (text separated by a blank line) of at least a minimum length starts and ends
+ * its own chunks, so editing it leaves the chunks of the other paragraphs unchanged. Shorter
+ * paragraphs, such as headings or one-line dialogue, are packed together with their
+ * neighbours instead of each costing a nearly empty request.
+ */
+@Component
+public class TextChunker {
+
+    // Línea en blanco entre párrafos
+    private static final Pattern PARAGRAPH_BREAK = Pattern.compile("\\R[\\h\\x0B\\f]*\\R\\s*");
+
+    private final int maxChars;
+    private final int maxEncodedLength;
+    private final int minParagraphChars;
+
+    public TextChunker(@Value("${tts.chunk.max-chars:200}") int maxChars,
+                       @Value("${tts.chunk.max-encoded-length:600}") int maxEncodedLength,
+                       @Value("${tts.chunk.min-paragraph-chars:100}") int minParagraphChars) {
+        // Un code point ocupa hasta 2 chars y 12 bytes codificados (4 bytes UTF-8 * "%XX")
+        if (maxChars < 2 || maxEncodedLength < 12) {
+            throw new IllegalArgumentException("Chunk limits too small: maxChars=" + maxChars
+                    + ", maxEncodedLength=" + maxEncodedLength);
+        }
+        this.maxChars = maxChars;
+        this.maxEncodedLength = maxEncodedLength;
+        this.minParagraphChars = minParagraphChars;
+    }
+
+    /**
+     * Check whether the text can be sent in a single upstream request.
+     * @param text Text to check
+     * @return true if it fits within both limits
+     */
+    public boolean fitsSingleRequest(String text) {
+        return text.length() <= maxChars && encodedLength(text, 0, text.length()) <= maxEncodedLength;
+    }
+
+    /**
+     * Split the text into chunks in a single pass over it.
+     * The returned chunks are views over the original text; no substrings are created.
+     * @param text Text to split
+     * @param lang Language code used for sentence and word detection
+     * @return Ordered list of non-blank chunks
+     */
+    public List<Chunk> split(String text, String lang) {
+        List<Chunk> chunks = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return chunks;
+        }
+
+        Locale locale = lang != null ? Locale.forLanguageTag(lang) : Locale.ROOT;
+        BreakIterator sentences = BreakIterator.getSentenceInstance(locale);
+        BreakIterator words = BreakIterator.getWordInstance(locale);
+
+        Packer packer = new Packer(text, chunks);
+        Matcher paragraphBreak = PARAGRAPH_BREAK.matcher(text);
+        int paragraphStart = 0;
+        while (paragraphStart < text.length()) {
+            int paragraphEnd = text.length();
+            int nextStart = text.length();
+            if (paragraphBreak.find(paragraphStart)) {
+                paragraphEnd = paragraphBreak.start();
+                nextStart = paragraphBreak.end();
+            }
+            if (paragraphStart < paragraphEnd) {
+                // Solo los párrafos largos van en fragmentos propios; los cortos se juntan
+                boolean aligned = paragraphEnd - paragraphStart >= minParagraphChars;
+                if (aligned) {
+                    packer.flush();
+                }
+                packParagraph(text, paragraphStart, paragraphEnd, sentences, words, packer);
+                if (aligned) {
+                    packer.flush();
+                }
+            }
+            paragraphStart = nextStart;
+        }
+        packer.flush();
+        return chunks;
+    }
+
+    private void packParagraph(String text, int paragraphStart, int paragraphEnd,
+                               BreakIterator sentences, BreakIterator words, Packer packer) {
+        // Los índices del iterador siguen siendo posiciones en el texto completo
+        sentences.setText(new StringCharacterIterator(text, paragraphStart, paragraphEnd, paragraphStart));
+        words.setText(new StringCharacterIterator(text, paragraphStart, paragraphEnd, paragraphStart));
+
+        int start = sentences.first();
+        for (int end = sentences.next(); end != BreakIterator.DONE; start = end, end = sentences.next()) {
+            int encoded = encodedLength(text, start, end);
+            if (packer.tryAppend(start, end, encoded)) {
+                continue;
+            }
+            packer.flush();
+            if (!packer.tryAppend(start, end, encoded)) {
+                packWords(text, words, start, end, packer);
+            }
+        }
+    }
+
+    private void packWords(String text, BreakIterator words, int start, int end, Packer packer) {
+        int wordStart = start;
+        while (wordStart < end) {
+            int wordEnd = words.following(wordStart);
+            if (wordEnd == BreakIterator.DONE || wordEnd > end) {
+                wordEnd = end;
+            }
+            int encoded = encodedLength(text, wordStart, wordEnd);
+            if (!packer.tryAppend(wordStart, wordEnd, encoded)) {
+                packer.flush();
+                if (!packer.tryAppend(wordStart, wordEnd, encoded)) {
+                    packCodePoints(text, wordStart, wordEnd, packer);
+                }
+            }
+            wordStart = wordEnd;
+        }
+    }
+
+    private void packCodePoints(String text, int start, int end, Packer packer) {
+        int i = start;
+        while (i < end) {
+            int codePoint = text.codePointAt(i);
+            int next = i + Character.charCount(codePoint);
+            int encoded = encodedLength(codePoint);
+            if (!packer.tryAppend(i, next, encoded)) {
+                packer.flush();
+                packer.tryAppend(i, next, encoded);
+            }
+            i = next;
+        }
+    }
+
+    /**
+     * Length of the range once encoded with {@link java.net.URLEncoder} in UTF-8.
+     */
+    static int encodedLength(CharSequence text, int start, int end) {
+        int length = 0;
+        int i = start;
+        while (i < end) {
+            int codePoint = Character.codePointAt(text, i);
+            length += encodedLength(codePoint);
+            i += Character.charCount(codePoint);
+        }
+        return length;
+    }
+
+    private static int encodedLength(int codePoint) {
+        if ((codePoint >= 'a' && codePoint <= 'z') || (codePoint >= 'A' && codePoint <= 'Z')
+                || (codePoint >= '0' && codePoint <= '9')
+                || codePoint == '.' || codePoint == '-' || codePoint == '*' || codePoint == '_'
+                || codePoint == ' ') {
+            return 1;
+        }
+        if (codePoint < 0x80) return 3;
+        if (codePoint < 0x800) return 6;
+        if (codePoint < 0x10000) return 9;
+        return 12;
+    }
+
+    /**
+     * Accumulates consecutive ranges of the text into the current chunk.
+     */
+    private final class Packer {
+        private final String text;
+        private final List<Chunk> chunks;
+        private int chunkStart = -1;
+        private int chunkEnd;
+        private int encoded;
+
+        private Packer(String text, List<Chunk> chunks) {
+            this.text = text;
+            this.chunks = chunks;
+        }
+
+        private boolean tryAppend(int start, int end, int encodedLength) {
+            if (chunkStart < 0) {
+                if (end - start > maxChars || encodedLength > maxEncodedLength) {
+                    return false;
+                }
+                chunkStart = start;
+                chunkEnd = end;
+                encoded = encodedLength;
+                return true;
+            }
+            // Entre párrafos cortos queda el salto de línea, que también va en la petición
+            int gap = start > chunkEnd ? encodedLength(text, chunkEnd, start) : 0;
+            if (end - chunkStart > maxChars || encoded + gap + encodedLength > maxEncodedLength) {
+                return false;
+            }
+            chunkEnd = end;
+            encoded += gap + encodedLength;
+            return true;
+        }
+
+        private void flush() {
+            if (chunkStart < 0) {
+                return;
+            }
+            int start = chunkStart;
+            int end = chunkEnd;
+            while (start < end && Character.isWhitespace(text.charAt(start))) start++;
+            while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+            if (start < end) {
+                chunks.add(new Chunk(text, start, end));
+            }
+            chunkStart = -1;
+        }
+    }
+
+    /**
+     * A range of the original text. Implements {@link CharSequence} without copying;
+     * {@link #toString()} materializes the substring only when it is really needed.
+     */
+    public record Chunk(String source, int start, int end) implements CharSequence {
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return source.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return source.subSequence(start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return source.substring(start, end);
+        }
+    }
+}
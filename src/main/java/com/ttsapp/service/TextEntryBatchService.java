@@ -0,0 +1,293 @@
+package com.ttsapp.service;
+
+import com.ttsapp.dto.TextEntryBatchResult;
+import com.ttsapp.dto.TextEntryRequest;
+import com.ttsapp.dto.TextEntryResponse;
+import com.ttsapp.entity.StoredAudio;
+import com.ttsapp.entity.TextEntry;
+import com.ttsapp.entity.User;
+import com.ttsapp.repository.TextEntryRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Creates many text entries in one request.
+ * All rows are written in one transaction, the audio of the items that nobody shares yet
+ * is synthesized in parallel on virtual threads, and each item's final state is written as
+ * soon as its audio is ready. The number of items synthesizing at once is capped across all
+ * batch requests, so concurrent bulk imports do not multiply the load on the TTS service.
+ */
+@Service
+@Slf4j
+public class TextEntryBatchService {
+
+    private static final String DEFAULT_VOICE = "es-ES-ElviraNeural";
+
+    private final TextEntryRepository textEntryRepository;
+    private final UserQueryService userQueryService;
+    private final SharedAudioService sharedAudioService;
+    private final SynthesisJobService synthesisJobService;
+    private final UserCharacterQuota userCharacterQuota;
+    private final TtsService ttsService;
+    private final Validator validator;
+    private final ExecutorService batchSynthesisExecutor;
+    private final TransactionTemplate transaction;
+    private final int maxItems;
+    private final int parallelism;
+    private final Semaphore synthesisPermits;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong failedItems = new AtomicLong();
+
+    public TextEntryBatchService(TextEntryRepository textEntryRepository,
+                                 UserQueryService userQueryService,
+                                 SharedAudioService sharedAudioService,
+                                 SynthesisJobService synthesisJobService,
+                                 UserCharacterQuota userCharacterQuota,
+                                 TtsService ttsService,
+                                 Validator validator,
+                                 ExecutorService batchSynthesisExecutor,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${tts.batch.max-items:500}") int maxItems,
+                                 @Value("${tts.batch.parallelism:8}") int parallelism) {
+        this.textEntryRepository = textEntryRepository;
+        this.userQueryService = userQueryService;
+        this.sharedAudioService = sharedAudioService;
+        this.synthesisJobService = synthesisJobService;
+        this.userCharacterQuota = userCharacterQuota;
+        this.ttsService = ttsService;
+        this.validator = validator;
+        this.batchSynthesisExecutor = batchSynthesisExecutor;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.maxItems = maxItems;
+        this.parallelism = Math.max(1, parallelism);
+        this.synthesisPermits = new Semaphore(this.parallelism, true);
+    }
+
+    /**
+     * Create one text entry per request item.
+     * @param requests Items to create
+     * @return One result per item, in request order
+     */
+    public List<TextEntryBatchResult> createTextEntries(List<TextEntryRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new RuntimeException("The batch is empty");
+        }
+        if (requests.size() > maxItems) {
+            throw new RuntimeException("A batch can contain at most " + maxItems + " texts");
+        }
+        batches.incrementAndGet();
+        items.addAndGet(requests.size());
+
+        TextEntryBatchResult[] results = new TextEntryBatchResult[requests.size()];
+        Map<Integer, TextEntryRequest> valid = new TreeMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            String error = validate(requests.get(i));
+            if (error != null) {
+                results[i] = TextEntryBatchResult.failed(i, null, error);
+            } else {
+                valid.put(i, requests.get(i));
+            }
+        }
+
+        Map<Integer, TextEntry> saved = valid.isEmpty() ? Map.of() : transaction.execute(status -> persist(valid));
+        Map<Integer, TextEntryResponse> responses = new TreeMap<>();
+        saved.forEach((index, entry) -> responses.put(index, TextEntryResponse.fromEntity(entry)));
+
+        List<Integer> pending = saved.entrySet().stream()
+                .filter(item -> item.getValue().getStatus() == TextEntry.AudioStatus.PENDING)
+                .map(Map.Entry::getKey)
+                .toList();
+        Map<Integer, String> errors = new ConcurrentHashMap<>();
+        if (!pending.isEmpty() && !synthesisJobService.isAsyncEnabled()) {
+            responses.putAll(synthesize(pending, saved, errors));
+        }
+
+        responses.forEach((index, response) -> results[index] = errors.containsKey(index)
+                ? TextEntryBatchResult.failed(index, response, errors.get(index))
+                : TextEntryBatchResult.created(index, response));
+        long failed = Arrays.stream(results).filter(result -> result.getError() != null).count();
+        failedItems.addAndGet(failed);
+        log.info("Batch of {} texts processed: {} failed", requests.size(), failed);
+        return List.of(results);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("batches", batches.get());
+        stats.put("items", items.get());
+        stats.put("failedItems", failedItems.get());
+        stats.put("parallelism", parallelism);
+        stats.put("synthesizing", parallelism - synthesisPermits.availablePermits());
+        stats.put("waiting", synthesisPermits.getQueueLength());
+        return stats;
+    }
+
+    // Todas las filas en una transacción; las que ya tienen audio compartido quedan completadas
+    private Map<Integer, TextEntry> persist(Map<Integer, TextEntryRequest> requests) {
+        User currentUser = userQueryService.getCurrentUser();
+        Map<Integer, TextEntry> entries = new TreeMap<>();
+        requests.forEach((index, request) -> {
+            String voice = voiceOf(request);
+            StoredAudio shared = sharedAudioService.acquireExisting(request.getContent(), voice).orElse(null);
+            entries.put(index, TextEntry.builder()
+                    .title(request.getTitle())
+                    .content(request.getContent())
+                    .user(currentUser)
+                    .voice(voice)
+                    .audioUrl(shared != null ? shared.getAudioUrl() : null)
+                    .status(shared != null ? TextEntry.AudioStatus.COMPLETED : TextEntry.AudioStatus.PENDING)
+                    .build());
+        });
+
+        // Solo se cobra lo que se va a sintetizar: ni el audio ya compartido ni los textos repetidos
+        // del lote. Si no hay cupo, la transacción se deshace con las referencias ya tomadas
+        Map<String, TextEntry> toSynthesize = new HashMap<>();
+        entries.values().stream()
+                .filter(entry -> entry.getStatus() == TextEntry.AudioStatus.PENDING)
+                .forEach(entry -> toSynthesize.putIfAbsent(audioKey(entry), entry));
+        userCharacterQuota.acquire(toSynthesize.values().stream()
+                .mapToInt(entry -> ttsService.charactersToSynthesize(entry.getContent(), entry.getVoice(), null))
+                .sum());
+
+        textEntryRepository.saveAll(entries.values());
+
+        if (synthesisJobService.isAsyncEnabled()) {
+            entries.values().stream()
+                    .filter(entry -> entry.getStatus() == TextEntry.AudioStatus.PENDING)
+                    .forEach(entry -> synthesisJobService.submit(entry.getId(), entry.getContent(), entry.getVoice()));
+        }
+        return entries;
+    }
+
+    // Las entradas quedan PENDING mientras tanto: si el proceso se reinicia, se retoman como trabajos
+    private Map<Integer, TextEntryResponse> synthesize(List<Integer> pending, Map<Integer, TextEntry> entries,
+                                                       Map<Integer, String> errors) {
+        Map<Integer, TextEntryResponse> responses = new ConcurrentHashMap<>();
+        // Los elementos con el mismo texto y voz van uno tras otro: el segundo reutiliza el audio del primero
+        Collection<List<Integer>> groups = pending.stream()
+                .collect(Collectors.groupingBy(index -> audioKey(entries.get(index)), LinkedHashMap::new, Collectors.toList()))
+                .values();
+        List<Future<?>> tasks = new ArrayList<>();
+        for (List<Integer> group : groups) {
+            // Con el contexto de seguridad de la petición, para que el planificador sepa de qué usuario es
+            tasks.add(batchSynthesisExecutor.submit(DelegatingSecurityContextRunnable.create(() -> {
+                for (Integer index : group) {
+                    synthesizeItem(index, entries.get(index), responses, errors);
+                }
+            }, null)));
+        }
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Batch synthesis interrupted", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Batch synthesis failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+        return responses;
+    }
+
+    private void synthesizeItem(Integer index, TextEntry entry, Map<Integer, TextEntryResponse> responses,
+                                Map<Integer, String> errors) {
+        StoredAudio stored = null;
+        try {
+            stored = obtain(entry);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.warn("Batch item {} failed: {}", index, e.getMessage());
+            errors.put(index, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+
+        StoredAudio audio = stored;
+        try {
+            // Cada elemento se guarda en cuanto termina: un fallo posterior no deja los ya generados en PENDING
+            TextEntryResponse response = transaction.execute(status -> complete(entry.getId(), audio));
+            if (response != null) {
+                responses.put(index, response);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Batch item {} could not be saved: {}", index, e.getMessage());
+            if (audio != null) {
+                sharedAudioService.release(audio.getAudioUrl());
+            }
+            errors.putIfAbsent(index, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    private StoredAudio obtain(TextEntry entry) throws InterruptedException {
+        // Espera en un hilo virtual: no ocupa un hilo de plataforma ni de los planificadores de Reactor
+        synthesisPermits.acquire();
+        try {
+            return sharedAudioService.obtain(entry.getContent(), entry.getVoice(), null);
+        } finally {
+            synthesisPermits.release();
+        }
+    }
+
+    // Estado final de un elemento; null si el texto se borró mientras se generaba el audio
+    private TextEntryResponse complete(Long entryId, StoredAudio audio) {
+        TextEntry entry = textEntryRepository.findById(entryId).orElse(null);
+        if (entry == null || entry.getStatus() != TextEntry.AudioStatus.PENDING) {
+            // Borrado, o editado entretanto con su propio audio: el generado aquí ya no se usa
+            if (audio != null) {
+                sharedAudioService.release(audio.getAudioUrl());
+            }
+            return entry != null ? TextEntryResponse.fromEntity(entry) : null;
+        }
+        entry.setAudioUrl(audio != null ? audio.getAudioUrl() : null);
+        entry.setStatus(audio != null ? TextEntry.AudioStatus.COMPLETED : TextEntry.AudioStatus.FAILED);
+        return TextEntryResponse.fromEntity(textEntryRepository.save(entry));
+    }
+
+    private String validate(TextEntryRequest request) {
+        if (request == null) {
+            return "Item is null";
+        }
+        Set<ConstraintViolation<TextEntryRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private static String voiceOf(TextEntryRequest request) {
+        return request.getVoice() != null ? request.getVoice() : DEFAULT_VOICE;
+    }
+
+    // Texto y voz: los elementos con la misma clave comparten audio
+    private static String audioKey(TextEntry entry) {
+        return entry.getVoice() + '\0' + entry.getContent();
+    }
+}
@@ -1,66 +1,113 @@
 package com.ttsapp.service;
 
+import com.ttsapp.dto.AdminListQuery;
+import com.ttsapp.dto.CursorPage;
+import com.ttsapp.dto.SynthesisJobResponse;
 import com.ttsapp.dto.TextEntryRequest;
 import com.ttsapp.dto.TextEntryResponse;
+import com.ttsapp.entity.StoredAudio;
 import com.ttsapp.entity.TextEntry;
 import com.ttsapp.entity.User;
+import com.ttsapp.exception.QuotaExceededException;
+import com.ttsapp.exception.UpstreamUnavailableException;
+import com.ttsapp.repository.AdminListSpecifications;
 import com.ttsapp.repository.TextEntryRepository;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 import java.util.stream.Collectors;
 
+/**
+ * Text entries of the users. Creating or editing an entry synthesizes its audio first,
+ * with no transaction open, and then writes the entry in a short transaction, so a slow
+ * TTS service never keeps a database connection busy.
+ */
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class TextEntryService {
     
     private final TextEntryRepository textEntryRepository;
-    private final TtsService ttsService;
     private final UserQueryService userQueryService;
+    private final SynthesisJobService synthesisJobService;
+    private final SharedAudioService sharedAudioService;
+    private final UserCharacterQuota userCharacterQuota;
+    private final TtsService ttsService;
+    private final TransactionTemplate transaction;
+    
+    public TextEntryService(TextEntryRepository textEntryRepository,
+                            UserQueryService userQueryService,
+                            SynthesisJobService synthesisJobService,
+                            SharedAudioService sharedAudioService,
+                            UserCharacterQuota userCharacterQuota,
+                            TtsService ttsService,
+                            PlatformTransactionManager transactionManager) {
+        this.textEntryRepository = textEntryRepository;
+        this.userQueryService = userQueryService;
+        this.synthesisJobService = synthesisJobService;
+        this.sharedAudioService = sharedAudioService;
+        this.userCharacterQuota = userCharacterQuota;
+        this.ttsService = ttsService;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
     
-    @Transactional
     public TextEntryResponse createTextEntry(TextEntryRequest request) {
-        System.out.println("=== INICIO createTextEntry ===");
-        System.out.println("Título: " + request.getTitle());
-        System.out.println("Contenido length: " + (request.getContent() != null ? request.getContent().length() : "null"));
-        System.out.println("Voz: " + request.getVoice());
-        
         User currentUser = userQueryService.getCurrentUser();
-        System.out.println("Usuario actual: " + currentUser.getUsername());
+        log.debug("Creating text entry '{}' for {} ({} chars, voice {})", request.getTitle(),
+                currentUser.getUsername(), request.getContent().length(), request.getVoice());
+        
+        // Si otro texto con el mismo contenido y voz ya tiene audio, se comparte sin sintetizar
+        StoredAudio sharedAudio = sharedAudioService.acquireExisting(request.getContent(), request.getVoice()).orElse(null);
+        if (sharedAudio == null) {
+            userCharacterQuota.acquire(request.getContent().length());
+        }
+        
+        if (sharedAudio == null && synthesisJobService.isAsyncEnabled()) {
+            // Modo asíncrono: se guarda la entrada y el audio se genera en segundo plano
+            TextEntry entry = TextEntry.builder()
+                    .title(request.getTitle())
+                    .content(request.getContent())
+                    .user(currentUser)
+                    .voice(request.getVoice())
+                    .status(TextEntry.AudioStatus.PENDING)
+                    .build();
+            entry = textEntryRepository.saveAndFlush(entry);
+            synthesisJobService.submit(entry.getId(), entry.getContent(), request.getVoice());
+            log.debug("Text entry {} pending synthesis", entry.getId());
+            return TextEntryResponse.fromEntity(entry);
+        }
         
         try {
-            System.out.println("Generando audio...");
-            byte[] audioData = ttsService.generateAudio(request.getContent(), request.getVoice());
-            System.out.println("Audio generado, tamaño: " + (audioData != null ? audioData.length : "null") + " bytes");
-            
-            System.out.println("Guardando audio...");
-            String audioUrl = ttsService.saveAudio(audioData);
-            System.out.println("Audio guardado en: " + audioUrl);
+            if (sharedAudio == null) {
+                sharedAudio = sharedAudioService.obtain(request.getContent(), request.getVoice(), null);
+            }
+            String audioUrl = sharedAudio.getAudioUrl();
             
-            System.out.println("Creando entrada de texto...");
             TextEntry entry = TextEntry.builder()
                     .title(request.getTitle())
                     .content(request.getContent())
                     .user(currentUser)
                     .audioUrl(audioUrl)
+                    .voice(request.getVoice())
+                    .status(TextEntry.AudioStatus.COMPLETED)
                     .build();
             
-            System.out.println("Guardando en base de datos...");
-            // Usar saveAndFlush para asegurar persistencia inmediata
-            entry = textEntryRepository.saveAndFlush(entry);
-            System.out.println("Entrada guardada con ID: " + entry.getId());
-            System.out.println("✅ Texto persistido inmediatamente en BD");
-            
-            TextEntryResponse response = TextEntryResponse.fromEntity(entry);
-            System.out.println("Respuesta creada - ID: " + response.getId() + ", audioUrl: " + response.getAudioUrl());
-            System.out.println("=== FIN createTextEntry ===");
-            
-            return response;
-        } catch (Exception e) {
-            System.err.println("ERROR en createTextEntry: " + e.getMessage());
-            e.printStackTrace();
+            try {
+                // Usar saveAndFlush para asegurar persistencia inmediata
+                entry = textEntryRepository.saveAndFlush(entry);
+            } catch (RuntimeException e) {
+                // La referencia al audio ya está tomada y ninguna entrada la va a usar
+                sharedAudioService.release(audioUrl);
+                throw e;
+            }
+            log.debug("Text entry {} saved with audio {} (references: {})", entry.getId(), audioUrl,
+                    sharedAudio.getRefCount());
+            return TextEntryResponse.fromEntity(entry);
+        } catch (RuntimeException e) {
+            log.error("Error creating text entry: {}", e.getMessage());
             throw e;
         }
     }
@@ -79,98 +126,88 @@ public class TextEntryService {
         return TextEntryResponse.fromEntity(entry);
     }
     
-    @Transactional
+    public SynthesisJobResponse getJobStatus(Long id) {
+        User currentUser = userQueryService.getCurrentUser();
+        TextEntry entry = textEntryRepository.findByIdAndUser(id, currentUser)
+                .orElseThrow(() -> new RuntimeException("Text entry not found"));
+        return SynthesisJobResponse.fromEntity(entry);
+    }
+    
     public TextEntryResponse updateTextEntry(Long id, TextEntryRequest request) {
-        System.out.println("=== INICIO updateTextEntry (Service) ===");
-        System.out.println("ID: " + id);
-        System.out.println("Request: " + (request != null ? "NOT NULL" : "NULL"));
-        if (request != null) {
-            System.out.println("Título: " + request.getTitle());
-            System.out.println("Contenido length: " + (request.getContent() != null ? request.getContent().length() : "null"));
-            System.out.println("Voz: " + request.getVoice());
-        }
-        
         User currentUser = userQueryService.getCurrentUser();
-        System.out.println("Usuario actual: " + currentUser.getUsername());
+        log.debug("Updating text entry {} for {}", id, currentUser.getUsername());
         
         TextEntry entry = textEntryRepository.findByIdAndUser(id, currentUser)
-                .orElseThrow(() -> {
-                    System.err.println("ERROR: Text entry no encontrado - ID: " + id + ", Usuario: " + currentUser.getUsername());
-                    return new RuntimeException("Text entry not found");
-                });
-        
-        System.out.println("Entrada encontrada - ID: " + entry.getId() + ", Título actual: " + entry.getTitle());
+                .orElseThrow(() -> new RuntimeException("Text entry not found"));
         
         // Verificar si el contenido o la voz cambiaron (necesitamos regenerar audio)
         boolean contentChanged = !entry.getContent().equals(request.getContent());
         String currentVoice = request.getVoice() != null ? request.getVoice() : "es-ES-ElviraNeural";
-        // Nota: No tenemos la voz guardada en la entrada, así que siempre regeneramos si el contenido cambió
-        // O si se especifica una voz diferente
+        log.debug("Text entry {}: {} -> {} chars, content changed: {}", id, entry.getContent().length(),
+                request.getContent().length(), contentChanged);
         
-        System.out.println("Comparando contenido:");
-        System.out.println("  Contenido actual length: " + entry.getContent().length());
-        System.out.println("  Contenido nuevo length: " + (request.getContent() != null ? request.getContent().length() : "null"));
-        System.out.println("  Contenido cambió: " + contentChanged);
+        boolean audioChanged = contentChanged || !currentVoice.equals(entry.getVoice());
+        if (!audioChanged && entry.getStatus() == TextEntry.AudioStatus.COMPLETED
+                && ttsService.audioFileExists(entry.getAudioUrl())) {
+            // Mismo texto y voz con su audio en su sitio: solo cambia el título, sin sintetizar ni cobrar
+            return transaction.execute(status -> saveUpdate(id, currentUser, request, currentVoice, null));
+        }
         
-        // Siempre regenerar audio (porque no guardamos la voz original)
-        // Esto asegura que el audio coincida con el contenido y voz actuales
-        System.out.println("Regenerando audio con nuevo contenido y voz...");
+        // Si otro texto ya tiene este contenido y voz se comparte su audio; si no, se genera
+        // un fichero nuevo copiando del anterior los fragmentos que no han cambiado.
+        // Se cobra siempre que se pide audio, también al reintentar una entrada fallida o antigua;
+        // solo los fragmentos que no se copian del audio anterior
+        TtsService.AudioFile previous = sharedAudioService.findAudioFile(entry.getAudioUrl()).orElse(null);
+        userCharacterQuota.acquire(ttsService.charactersToSynthesize(request.getContent(), currentVoice, previous));
+        StoredAudio audio;
         try {
-            byte[] audioData = ttsService.generateAudio(request.getContent(), currentVoice);
-            System.out.println("Audio regenerado, tamaño: " + (audioData != null ? audioData.length : "null") + " bytes");
-            
-            // Eliminar el audio anterior si existe
+            audio = sharedAudioService.obtain(request.getContent(), currentVoice, previous);
+        } catch (UpstreamUnavailableException | QuotaExceededException e) {
+            // Se propagan tal cual para que el cliente reciba 503/429 y no un error genérico
+            throw e;
+        } catch (RuntimeException e) {
+            log.error("Error regenerating audio of text entry {}", id, e);
+            throw new RuntimeException("Error al regenerar audio: " + e.getMessage(), e);
+        }
+        
+        try {
+            // Con el audio ya generado, la entrada se relee y se guarda en una transacción corta
+            return transaction.execute(status -> saveUpdate(id, currentUser, request, currentVoice, audio.getAudioUrl()));
+        } catch (RuntimeException e) {
+            sharedAudioService.release(audio.getAudioUrl());
+            throw e;
+        }
+    }
+    
+    // Con audioUrl null la entrada conserva el audio que ya tenía
+    private TextEntryResponse saveUpdate(Long id, User currentUser, TextEntryRequest request,
+                                         String voice, String audioUrl) {
+        TextEntry entry = textEntryRepository.findByIdAndUser(id, currentUser)
+                .orElseThrow(() -> new RuntimeException("Text entry not found"));
+        
+        if (audioUrl == null) {
+            // Otra edición pudo cambiar el texto mientras tanto: su audio ya no correspondería
+            if (!entry.getContent().equals(request.getContent()) || !voice.equals(entry.getVoice())) {
+                throw new RuntimeException("Text entry was modified concurrently");
+            }
+        } else {
+            // Soltar la referencia al audio anterior; el fichero se borra si ya nadie lo usa
             if (entry.getAudioUrl() != null) {
-                try {
-                    ttsService.deleteAudioFile(entry.getAudioUrl());
-                    System.out.println("Audio anterior eliminado: " + entry.getAudioUrl());
-                } catch (Exception e) {
-                    System.err.println("No se pudo eliminar el audio anterior: " + e.getMessage());
-                }
+                sharedAudioService.release(entry.getAudioUrl());
             }
-            
-            String audioUrl = ttsService.saveAudio(audioData);
-            System.out.println("Nuevo audio guardado en: " + audioUrl);
             entry.setAudioUrl(audioUrl);
-        } catch (Exception e) {
-            System.err.println("ERROR al regenerar audio: " + e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException("Error al regenerar audio: " + e.getMessage(), e);
         }
         
+        entry.setVoice(voice);
+        entry.setStatus(TextEntry.AudioStatus.COMPLETED);
         // SIEMPRE actualizar título y contenido (esto es lo que el usuario quiere cambiar)
-        System.out.println("Actualizando título y contenido...");
-        System.out.println("  Título anterior: " + entry.getTitle());
-        System.out.println("  Título nuevo: " + request.getTitle());
-        System.out.println("  Contenido anterior length: " + entry.getContent().length());
-        System.out.println("  Contenido nuevo length: " + (request.getContent() != null ? request.getContent().length() : "null"));
-        
         entry.setTitle(request.getTitle());
         entry.setContent(request.getContent());
         
-        System.out.println("Título y contenido actualizados en el objeto entry");
-        
-        System.out.println("Guardando cambios en base de datos...");
         // Usar saveAndFlush para asegurar persistencia inmediata
         entry = textEntryRepository.saveAndFlush(entry);
-        System.out.println("Entrada guardada - ID: " + entry.getId());
-        System.out.println("✅ Texto actualizado persistido inmediatamente en BD");
-        
-        // Verificar que se guardó correctamente
-        TextEntry savedEntry = textEntryRepository.findById(entry.getId()).orElse(null);
-        if (savedEntry != null) {
-            System.out.println("✅ Verificación - Título guardado: " + savedEntry.getTitle());
-            System.out.println("✅ Verificación - Contenido guardado length: " + savedEntry.getContent().length());
-            System.out.println("✅ Verificación - AudioUrl guardado: " + savedEntry.getAudioUrl());
-        } else {
-            System.err.println("❌ ERROR: No se pudo verificar la entrada guardada!");
-        }
-        
-        TextEntryResponse response = TextEntryResponse.fromEntity(entry);
-        System.out.println("Respuesta creada - ID: " + response.getId() + ", Título: " + response.getTitle() + ", audioUrl: " + response.getAudioUrl());
-        System.out.println("=== FIN updateTextEntry ===");
-        
-        return response;
+        log.debug("Text entry {} updated with audio {}", entry.getId(), audioUrl);
+        return TextEntryResponse.fromEntity(entry);
     }
     
     @Transactional
@@ -178,19 +215,31 @@ public class TextEntryService {
         User currentUser = userQueryService.getCurrentUser();
         TextEntry entry = textEntryRepository.findByIdAndUser(id, currentUser)
                 .orElseThrow(() -> new RuntimeException("Text entry not found"));
+        sharedAudioService.release(entry.getAudioUrl());
         textEntryRepository.delete(entry);
     }
     
-    public List<TextEntryResponse> getAllTextEntries() {
-        return textEntryRepository.findAll().stream()
-                .map(TextEntryResponse::fromEntity)
-                .collect(Collectors.toList());
+    /**
+     * A page of the texts of every user for the admin view.
+     * @param query Filters and position of the page
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<TextEntryResponse> getTextEntriesPage(AdminListQuery query) {
+        List<TextEntry> entries = textEntryRepository.findBy(AdminListSpecifications.texts(query),
+                q -> q.sortBy(AdminListSpecifications.order(query.isAscending()))
+                        .limit(query.getLimit() + 1)
+                        .project("user")
+                        .all());
+        return CursorPage.of(entries, query.getLimit(),
+                entry -> new CursorPage.Key(entry.getCreatedAt(), entry.getId()),
+                TextEntryResponse::fromEntity);
     }
     
     @Transactional
     public void deleteTextEntryAsAdmin(Long id) {
         TextEntry entry = textEntryRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Text entry not found"));
+        sharedAudioService.release(entry.getAudioUrl());
         textEntryRepository.delete(entry);
     }
 }
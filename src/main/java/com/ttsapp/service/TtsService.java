@@ -1,155 +1,335 @@
 package com.ttsapp.service;
 
-import com.ttsapp.dto.AudioFileInfo;
-import com.ttsapp.entity.TextEntry;
-import com.ttsapp.repository.TextEntryRepository;
+import com.ttsapp.entity.AudioSegment;
+import com.ttsapp.exception.UpstreamUnavailableException;
+import com.ttsapp.service.engine.TtsEngine;
+import com.ttsapp.service.storage.AudioStorage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpHeaders;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.net.URI;
-import java.net.URLEncoder;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class TtsService {
     
-    private static final String GOOGLE_TTS_URL = "https://translate.google.com/translate_tts";
-    private static final String UPLOAD_DIR = "uploads/audio";
-    private final TextEntryRepository textEntryRepository;
+    private final TextChunker textChunker;
+    private final TtsEngine ttsEngine;
+    private final UpstreamCallPolicy upstreamCallPolicy;
+    private final ChunkAudioCache chunkAudioCache;
+    private final SynthesisScheduler synthesisScheduler;
+    private final AudioStorage audioStorage;
+    private final AudioFileIndex audioFileIndex;
+    private final SingleFlight<byte[]> audioFlights = new SingleFlight<>();
+    private final SingleFlight<byte[]> chunkFlights = new SingleFlight<>();
     
-    // WebClient se inicializa después de crear el directorio
-    private final WebClient webClient = WebClient.builder()
-            .defaultHeader(HttpHeaders.USER_AGENT, "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36")
-            .defaultHeader(HttpHeaders.ACCEPT, "audio/mpeg, audio/*, */*")
-            .defaultHeader(HttpHeaders.ACCEPT_LANGUAGE, "en-US,en;q=0.9")
-            .build();
+    // Número máximo de fragmentos que se piden en paralelo al servicio TTS (1 = secuencial)
+    @Value("${tts.chunk.parallelism:4}")
+    private int chunkParallelism;
     
-    // Inicializar directorio al construir el bean
-    {
-        createUploadDirectory();
+    public byte[] generateAudio(String text, String voice) {
+        return generateAudioReactive(text, voice).block();
     }
     
-    private void createUploadDirectory() {
-        try {
-            Path uploadPath = Paths.get(UPLOAD_DIR);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-        } catch (IOException e) {
-            log.error("Failed to create upload directory", e);
-        }
+    /**
+     * Non-blocking variant of {@link #generateAudio}: nothing in the pipeline blocks a thread
+     * while waiting for the upstream, and disk cache access runs on the bounded-elastic scheduler.
+     * @param text Text to synthesize
+     * @param voice Voice to use
+     * @return Complete MP3 audio
+     */
+    public Mono<byte[]> generateAudioReactive(String text, String voice) {
+        // Peticiones idénticas simultáneas comparten una única síntesis
+        return audioFlights.execute(voice + '\u0000' + text, () -> doGenerateAudio(text, voice))
+                .contextWrite(SynthesisScheduler.context(SynthesisScheduler.Priority.INTERACTIVE));
     }
     
-    public byte[] generateAudio(String text, String voice) {
-        try {
+    public Map<String, Object> getInFlightStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("textInFlight", audioFlights.getInFlight());
+        stats.put("textExecutions", audioFlights.getExecutions());
+        stats.put("textCoalesced", audioFlights.getCoalesced());
+        stats.put("chunkInFlight", chunkFlights.getInFlight());
+        stats.put("chunkExecutions", chunkFlights.getExecutions());
+        stats.put("chunkCoalesced", chunkFlights.getCoalesced());
+        return stats;
+    }
+    
+    private Mono<byte[]> doGenerateAudio(String text, String voice) {
+        return Mono.defer(() -> {
             log.info("Generating audio for text length: {}, voice: {}", text.length(), voice);
             
             String lang = getLangFromVoice(voice);
             String ttsVoice = getGoogleTtsVoice(voice);
             
-            if (text.length() > 200) {
+            if (!textChunker.fitsSingleRequest(text)) {
                 return generateLongAudio(text, lang, ttsVoice);
             }
             
-            String encodedText = URLEncoder.encode(text, StandardCharsets.UTF_8);
             String speed = getSpeedFromVoice(voice);
-            String url = String.format(
-                "%s?ie=UTF-8&q=%s&tl=%s&client=tw-ob&ttsspeed=%s",
-                GOOGLE_TTS_URL,
-                encodedText,
-                lang,
-                speed
-            );
-            
-            log.debug("Requesting TTS from Google: {}", url);
-            
-            byte[] audioData = webClient.get()
-                    .uri(URI.create(url))
-                    .retrieve()
-                    .bodyToMono(byte[].class)
-                    .block();
-            
-            if (audioData == null || audioData.length == 0) {
-                log.error("Empty audio response from TTS service for text: {}", text.substring(0, Math.min(50, text.length())));
-                throw new RuntimeException("Empty audio response from TTS service");
-            }
-            
-            if (audioData.length < 1024) {
-                log.warn("Audio muy pequeño ({} bytes), puede estar corrupto", audioData.length);
-            }
-            
-            boolean isValidAudio = false;
-            if (audioData.length >= 3) {
-                String header = new String(audioData, 0, Math.min(4, audioData.length), StandardCharsets.ISO_8859_1);
-                if (header.startsWith("ID3") || header.startsWith("RIFF") || 
-                    (audioData[0] == (byte)0xFF && (audioData[1] & 0xE0) == 0xE0)) {
-                    isValidAudio = true;
-                }
-            }
-            
-            if (!isValidAudio && audioData.length > 0) {
-                log.warn("Audio puede no tener formato válido. Tamaño: {} bytes", audioData.length);
-            }
-            
-            log.info("Audio generated successfully: {} bytes, válido: {}", audioData.length, isValidAudio);
-            return audioData;
-            
-        } catch (Exception e) {
+            return fetchChunk(text, lang, speed)
+                    .switchIfEmpty(Mono.error(() -> {
+                        log.error("Empty audio response from TTS service for text: {}", text.substring(0, Math.min(50, text.length())));
+                        return new RuntimeException("Empty audio response from TTS service");
+                    }))
+                    .doOnNext(this::checkAudio);
+        }).onErrorMap(e -> !(e instanceof UpstreamUnavailableException), e -> {
             log.error("Error generating audio", e);
-            throw new RuntimeException("Failed to generate audio: " + e.getMessage(), e);
+            return new RuntimeException("Failed to generate audio: " + e.getMessage(), e);
+        });
+    }
+    
+    private void checkAudio(byte[] audioData) {
+        if (audioData.length < 1024) {
+            log.warn("Audio muy pequeño ({} bytes), puede estar corrupto", audioData.length);
+        }
+        
+        boolean isValidAudio = false;
+        if (audioData.length >= 3) {
+            String header = new String(audioData, 0, Math.min(4, audioData.length), StandardCharsets.ISO_8859_1);
+            if (header.startsWith("ID3") || header.startsWith("RIFF") || 
+                (audioData[0] == (byte)0xFF && (audioData[1] & 0xE0) == 0xE0)) {
+                isValidAudio = true;
+            }
+        }
+        
+        if (!isValidAudio) {
+            log.warn("Audio puede no tener formato válido. Tamaño: {} bytes", audioData.length);
         }
+        
+        log.info("Audio generated successfully: {} bytes, válido: {}", audioData.length, isValidAudio);
     }
     
-    private byte[] generateLongAudio(String text, String lang, String voiceName) {
-        try {
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            int chunkSize = 200;
-            
-            for (int i = 0; i < text.length(); i += chunkSize) {
-                int end = Math.min(i + chunkSize, text.length());
-                String chunk = text.substring(i, end);
-                
-                String encodedChunk = URLEncoder.encode(chunk, StandardCharsets.UTF_8);
-                String speed = getSpeedFromVoice(voiceName);
-                String url = String.format(
-                    "%s?ie=UTF-8&q=%s&tl=%s&client=tw-ob&ttsspeed=%s",
-                    GOOGLE_TTS_URL,
-                    encodedChunk,
-                    lang,
-                    speed
-                );
-                
-                byte[] chunkData = webClient.get()
-                        .uri(URI.create(url))
-                        .retrieve()
-                        .bodyToMono(byte[].class)
-                        .block();
-                
-                if (chunkData != null && chunkData.length > 0) {
-                    outputStream.write(chunkData);
-                    Thread.sleep(100);
-                }
+    private Mono<byte[]> generateLongAudio(String text, String lang, String voiceName) {
+        String speed = getSpeedFromVoice(voiceName);
+        List<TextChunker.Chunk> chunks = textChunker.split(text, lang);
+        
+        log.debug("Generating {} chunks with parallelism {}", chunks.size(), chunkParallelism);
+        
+        return fetchChunksInOrder(chunks, lang, speed)
+                .collectList()
+                .map(parts -> {
+                    // Se quitan las cabeceras ID3/Xing de cada fragmento y se escribe una sola cabecera Xing
+                    Mp3FrameJoiner joiner = new Mp3FrameJoiner();
+                    List<ByteBuffer> buffers = new ArrayList<>();
+                    for (byte[] part : parts) {
+                        buffers.addAll(joiner.add(part).runs());
+                    }
+                    buffers.add(0, joiner.buildHeader());
+                    int totalLength = 0;
+                    for (ByteBuffer buffer : buffers) {
+                        totalLength += buffer.remaining();
+                    }
+                    byte[] audioData = new byte[totalLength];
+                    ByteBuffer target = ByteBuffer.wrap(audioData);
+                    for (ByteBuffer buffer : buffers) {
+                        target.put(buffer);
+                    }
+                    log.debug("Joined {} chunks: {} frames, {} ms", parts.size(), joiner.getTotalFrames(), joiner.getDurationMs());
+                    return audioData;
+                })
+                .doOnError(e -> log.error("Error generating long audio", e));
+    }
+    
+    /**
+     * Audio file produced by {@link #generateAudioFile}.
+     * @param audioUrl Public URL of the file
+     * @param segments Position of each chunk's audio in the file, in text order
+     * @param reusedChunks Number of chunks copied from the previous file instead of synthesized
+     */
+    public record AudioFile(String audioUrl, List<AudioSegment> segments, int reusedChunks) {
+    }
+    
+    /**
+     * Synthesize the text straight into a new file under uploads/audio. Chunk audio is
+     * written to a temporary file as it arrives and renamed into place when complete,
+     * so memory use does not grow with the length of the text.
+     * @param text Text to synthesize
+     * @param voice Voice to use
+     * @return The saved audio file
+     */
+    public AudioFile generateAudioFile(String text, String voice) {
+        return generateAudioFile(text, voice, null);
+    }
+    
+    /**
+     * Same as {@link #generateAudioFile(String, String)}, reusing the audio of an earlier
+     * version of the text: chunks whose audio the previous file already contains are copied
+     * from it and only the changed chunks are synthesized. The previous file is left untouched.
+     * @param previous Earlier file of the same entry, or null
+     */
+    public AudioFile generateAudioFile(String text, String voice, AudioFile previous) {
+        return generateAudioFileReactive(text, voice, previous).block();
+    }
+    
+    public Mono<AudioFile> generateAudioFileReactive(String text, String voice, AudioFile previous) {
+        Map<String, AudioSegment> reusable = new HashMap<>();
+        Path previousPath = null;
+        if (previous != null && previous.segments() != null && !previous.segments().isEmpty()
+                && (previousPath = audioPath(previous.audioUrl())) != null) {
+            previous.segments().forEach(segment -> reusable.putIfAbsent(segment.getChunkKey(), segment));
+        }
+        Path sourcePath = previousPath;
+        AtomicInteger reused = new AtomicInteger();
+        
+        return Mono.using(
+                () -> new Mp3FileWriter(audioStorage.getTempDirectory(), sourcePath),
+                writer -> synthesizeChunks(text, voice, reusable)
+                        // Prefetch 1: como mucho un fragmento esperando a escribirse en disco
+                        .publishOn(Schedulers.boundedElastic(), 1)
+                        .<ChunkAudio>handle((chunkAudio, sink) -> {
+                            try {
+                                if (chunkAudio.reused() != null) {
+                                    writer.copy(chunkAudio.reused());
+                                    reused.incrementAndGet();
+                                } else {
+                                    writer.write(chunkAudio.key(), chunkAudio.data());
+                                }
+                            } catch (IOException e) {
+                                sink.error(e);
+                            }
+                        })
+                        .then(Mono.fromCallable(() -> {
+                            String filename = UUID.randomUUID().toString() + ".mp3";
+                            Path target = audioStorage.pathForNewFile(filename);
+                            writer.commit(target);
+                            audioFileIndex.record(filename, target, writer.getDurationMs());
+                            log.info("Audio saved: {} ({} ms, {} of {} chunks reused)", filename,
+                                    writer.getDurationMs(), reused.get(), writer.getSegments().size());
+                            return new AudioFile(audioStorage.urlOf(filename),
+                                    new ArrayList<>(writer.getSegments()), reused.get());
+                        })),
+                writer -> {
+                    try {
+                        writer.close();
+                    } catch (IOException e) {
+                        log.warn("Error closing audio file writer", e);
+                    }
+                })
+                .onErrorMap(e -> !(e instanceof UpstreamUnavailableException), e -> {
+                    log.error("Error generating audio file", e);
+                    return new RuntimeException("Failed to generate audio: " + e.getMessage(), e);
+                })
+                .contextWrite(SynthesisScheduler.context(SynthesisScheduler.Priority.BULK));
+    }
+    
+    // Audio de un fragmento: recién obtenido (data) o ya presente en el fichero anterior (reused)
+    private record ChunkAudio(String key, byte[] data, AudioSegment reused) {
+    }
+    
+    /**
+     * Number of characters that {@link #generateAudioFile(String, String, AudioFile)} would
+     * send to the TTS service: those of the chunks whose audio the previous file lacks.
+     * @param previous Earlier file of the same entry, or null
+     */
+    public int charactersToSynthesize(String text, String voice, AudioFile previous) {
+        ChunkPlan plan = planChunks(text, voice);
+        Set<String> reusable = new HashSet<>();
+        if (previous != null && previous.segments() != null && audioPath(previous.audioUrl()) != null) {
+            previous.segments().forEach(segment -> reusable.add(segment.getChunkKey()));
+        }
+        int characters = 0;
+        for (CharSequence chunk : plan.chunks()) {
+            if (!reusable.contains(chunkKey(plan, chunk))) {
+                characters += chunk.length();
             }
-            
-            return outputStream.toByteArray();
-        } catch (Exception e) {
-            log.error("Error generating long audio", e);
-            throw new RuntimeException("Failed to generate long audio: " + e.getMessage(), e);
         }
+        return characters;
+    }
+    
+    // Fragmentos en que se parte un texto y parámetros con que se pide cada uno
+    private record ChunkPlan(String lang, String speed, List<? extends CharSequence> chunks) {
+    }
+    
+    private ChunkPlan planChunks(String text, String voice) {
+        String lang = getLangFromVoice(voice);
+        if (textChunker.fitsSingleRequest(text)) {
+            return new ChunkPlan(lang, getSpeedFromVoice(voice), List.of(text));
+        }
+        return new ChunkPlan(lang, getSpeedFromVoice(getGoogleTtsVoice(voice)), textChunker.split(text, lang));
+    }
+    
+    private String chunkKey(ChunkPlan plan, CharSequence chunk) {
+        return chunkAudioCache.key(ttsEngine.getName(), plan.lang(), plan.speed(), chunk);
+    }
+    
+    private Flux<ChunkAudio> synthesizeChunks(String text, String voice, Map<String, AudioSegment> reusable) {
+        ChunkPlan plan = planChunks(text, voice);
+        String lang = plan.lang();
+        String speed = plan.speed();
+        return Flux.fromIterable(plan.chunks())
+                .flatMapSequential(chunk -> {
+                    String cacheKey = chunkKey(plan, chunk);
+                    AudioSegment segment = reusable.get(cacheKey);
+                    if (segment != null) {
+                        return Mono.just(new ChunkAudio(cacheKey, null, segment));
+                    }
+                    return fetchChunk(cacheKey, chunk, lang, speed)
+                            .map(chunkData -> new ChunkAudio(cacheKey, chunkData, null));
+                }, Math.max(1, chunkParallelism));
+    }
+    
+    /**
+     * Synthesize the text chunk by chunk, emitting each chunk's audio in order as soon
+     * as it is available. Useful to start sending audio before the whole text is done.
+     * Per-chunk ID3/Xing headers are dropped so the result is one continuous MP3 stream.
+     * @param text Text to synthesize
+     * @param voice Voice to use
+     * @return Ordered audio, as views over the chunk buffers
+     */
+    public Flux<ByteBuffer> streamAudio(String text, String voice) {
+        Flux<byte[]> chunks = synthesizeChunks(text, voice, Map.of())
+                .map(ChunkAudio::data)
+                .contextWrite(SynthesisScheduler.context(SynthesisScheduler.Priority.INTERACTIVE));
+        if (textChunker.fitsSingleRequest(text)) {
+            return chunks.map(ByteBuffer::wrap);
+        }
+        return chunks.flatMapIterable(chunkData -> Mp3FrameJoiner.extractFrames(chunkData).runs());
+    }
+    
+    // flatMapSequential lanza hasta chunkParallelism peticiones a la vez
+    // pero emite los resultados en el orden original de los fragmentos
+    private Flux<byte[]> fetchChunksInOrder(List<TextChunker.Chunk> chunks, String lang, String speed) {
+        return Flux.fromIterable(chunks)
+                .flatMapSequential(chunk -> fetchChunk(chunk, lang, speed), Math.max(1, chunkParallelism));
+    }
+    
+    private Mono<byte[]> fetchChunk(CharSequence chunk, String lang, String speed) {
+        return fetchChunk(chunkAudioCache.key(ttsEngine.getName(), lang, speed, chunk), chunk, lang, speed);
+    }
+    
+    private Mono<byte[]> fetchChunk(String cacheKey, CharSequence chunk, String lang, String speed) {
+        // Primero la caché en disco; solo si falla se llama al servicio TTS,
+        // y una sola vez aunque varias peticiones pidan el mismo fragmento a la vez
+        return chunkFlights.execute(cacheKey, () -> Mono.fromCallable(() -> chunkAudioCache.get(cacheKey))
+                .subscribeOn(Schedulers.boundedElastic())
+                .switchIfEmpty(Mono.defer(() -> requestChunk(chunk, lang, speed)
+                        .publishOn(Schedulers.boundedElastic())
+                        .doOnNext(chunkData -> chunkAudioCache.put(cacheKey, chunkData)))));
+    }
+    
+    private Mono<byte[]> requestChunk(CharSequence chunk, String lang, String speed) {
+        String text = chunk.toString();
+        // Hueco del planificador (prioridad y turno por usuario); dentro, reintentos, petición duplicada
+        // y circuit breaker, y cada intento pasa por el limitador adaptativo
+        return synthesisScheduler.schedule(() -> upstreamCallPolicy.execute(() -> ttsEngine.synthesize(text, lang, speed)));
     }
     
     private String getLangFromVoice(String voice) {
@@ -174,21 +354,6 @@ public class TtsService {
         return "1.0";
     }
     
-    public String saveAudio(byte[] audioData) {
-        try {
-            String filename = UUID.randomUUID().toString() + ".mp3";
-            Path filePath = Paths.get(UPLOAD_DIR, filename);
-            
-            Files.write(filePath, audioData);
-            
-            log.info("Audio saved: {}", filename);
-            return "/uploads/audio/" + filename;
-        } catch (IOException e) {
-            log.error("Error saving audio file", e);
-            throw new RuntimeException("Failed to save audio file: " + e.getMessage());
-        }
-    }
-
     public void deleteAudioFile(String audioUrl) {
         try {
             if (audioUrl == null || audioUrl.isEmpty()) {
@@ -196,10 +361,10 @@ public class TtsService {
             }
             
             String filename = audioUrl.substring(audioUrl.lastIndexOf("/") + 1);
-            Path filePath = Paths.get(UPLOAD_DIR, filename);
             
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
+            boolean deleted = audioStorage.delete(audioStorage.filenameOf(audioUrl));
+            audioFileIndex.remove(audioUrl);
+            if (deleted) {
                 log.info("Audio file deleted: {}", filename);
             } else {
                 log.warn("Audio file not found: {}", filename);
@@ -210,203 +375,12 @@ public class TtsService {
         }
     }
 
-    public List<String> getAllAudioFiles() {
-        try {
-            Path uploadPath = Paths.get(UPLOAD_DIR);
-            if (!Files.exists(uploadPath)) {
-                return java.util.Collections.emptyList();
-            }
-            
-            return Files.list(uploadPath)
-                    .filter(Files::isRegularFile)
-                    .map(path -> "/uploads/audio/" + path.getFileName().toString())
-                    .collect(java.util.stream.Collectors.toList());
-        } catch (IOException e) {
-            log.error("Error listing audio files", e);
-            return java.util.Collections.emptyList();
-        }
+    public boolean audioFileExists(String audioUrl) {
+        return audioUrl != null && !audioUrl.isEmpty() && audioPath(audioUrl) != null;
     }
 
-    public List<AudioFileInfo> getAllAudioFilesWithInfo() {
-        try {
-            log.info("=== TtsService.getAllAudioFilesWithInfo() ===");
-            
-            // Obtener TODOS los textos con la relación User cargada usando EntityGraph
-            List<TextEntry> allTextEntries = textEntryRepository.findAllWithUser();
-            log.info("Total text entries in DB: {}", allTextEntries.size());
-            
-            // Filtrar los que tienen audioUrl
-            List<TextEntry> textEntries = allTextEntries.stream()
-                    .filter(entry -> {
-                        boolean hasAudioUrl = entry.getAudioUrl() != null && !entry.getAudioUrl().isEmpty();
-                        if (!hasAudioUrl) {
-                            log.debug("TextEntry {} (title: {}) has no audioUrl", entry.getId(), entry.getTitle());
-                        }
-                        return hasAudioUrl;
-                    })
-                    .collect(Collectors.toList());
-            
-            log.info("Found {} text entries with audioUrl (out of {})", textEntries.size(), allTextEntries.size());
-            
-            if (textEntries.isEmpty()) {
-                log.warn("No text entries with audioUrl found!");
-                if (!allTextEntries.isEmpty()) {
-                    log.warn("But there are {} text entries without audioUrl", allTextEntries.size());
-                    allTextEntries.forEach(entry -> {
-                        log.warn("  - TextEntry ID: {}, Title: {}, AudioUrl: {}", 
-                            entry.getId(), entry.getTitle(), entry.getAudioUrl());
-                    });
-                }
-                return java.util.Collections.emptyList();
-            }
-            
-            // Crear un mapa de archivos físicos si el directorio existe
-            java.util.Map<String, Long> physicalFiles = new java.util.HashMap<>();
-            Path uploadPath = Paths.get(UPLOAD_DIR);
-            if (Files.exists(uploadPath)) {
-                try {
-                    Files.list(uploadPath)
-                            .filter(Files::isRegularFile)
-                            .forEach(path -> {
-                                try {
-                                    String filename = path.getFileName().toString();
-                                    String audioUrl = "/uploads/audio/" + filename;
-                                    long fileSize = Files.size(path);
-                                    physicalFiles.put(audioUrl, fileSize);
-                                } catch (IOException e) {
-                                    log.warn("Error getting file size for: {}", path.getFileName(), e);
-                                }
-                            });
-                } catch (IOException e) {
-                    log.warn("Error listing physical files", e);
-                }
-            }
-            
-            log.info("Found {} physical files in directory", physicalFiles.size());
-            
-            // Crear AudioFileInfo para cada TextEntry con audioUrl
-            List<AudioFileInfo> result = new java.util.ArrayList<>();
-            for (TextEntry textEntry : textEntries) {
-                try {
-                    String audioUrl = textEntry.getAudioUrl();
-                    log.debug("Processing TextEntry ID: {}, Title: {}, AudioUrl: {}", 
-                        textEntry.getId(), textEntry.getTitle(), audioUrl);
-                    
-                    String filename = audioUrl.substring(audioUrl.lastIndexOf("/") + 1);
-                    Long fileSize = physicalFiles.get(audioUrl);
-                    
-                    // Si el archivo físico no existe, usar 0 como tamaño
-                    if (fileSize == null) {
-                        log.warn("Physical file not found for audioUrl: {} (but TextEntry exists)", audioUrl);
-                        fileSize = 0L;
-                    } else {
-                        log.debug("Physical file found: {} (size: {} bytes)", filename, fileSize);
-                    }
-                    
-                    // Obtener username de forma segura (User ya está cargado por @EntityGraph)
-                    String username = "(Desconocido)";
-                    try {
-                        if (textEntry.getUser() != null) {
-                            username = textEntry.getUser().getUsername();
-                            log.debug("Username for TextEntry {}: {}", textEntry.getId(), username);
-                        } else {
-                            log.warn("TextEntry {} has no user associated", textEntry.getId());
-                        }
-                    } catch (Exception e) {
-                        log.error("Error getting username for TextEntry {}", textEntry.getId(), e);
-                        e.printStackTrace();
-                    }
-                    
-                    // Obtener fecha de forma segura
-                    java.time.LocalDateTime createdAt = textEntry.getCreatedAt();
-                    if (createdAt == null) {
-                        log.warn("TextEntry {} has no createdAt date", textEntry.getId());
-                    } else {
-                        log.debug("CreatedAt for TextEntry {}: {}", textEntry.getId(), createdAt);
-                    }
-                    
-                    log.debug("Creating AudioFileInfo: filename={}, title={}, username={}", 
-                        filename, textEntry.getTitle(), username);
-                    
-                    AudioFileInfo info = AudioFileInfo.builder()
-                            .filename(filename)
-                            .audioUrl(audioUrl)
-                            .title(textEntry.getTitle())
-                            .username(username)
-                            .textEntryId(textEntry.getId())
-                            .createdAt(textEntry.getCreatedAt())
-                            .fileSize(fileSize)
-                            .build();
-                    
-                    result.add(info);
-                    log.info("✅ AudioFileInfo created: {} - {} (user: {}, date: {})", 
-                        filename, textEntry.getTitle(), username, textEntry.getCreatedAt());
-                } catch (Exception e) {
-                    log.error("Error processing TextEntry ID: {}, Title: {}", 
-                        textEntry.getId(), textEntry.getTitle(), e);
-                }
-            }
-            
-            // Ordenar por fecha de creación (más reciente primero)
-            result.sort((a, b) -> {
-                if (a.getCreatedAt() != null && b.getCreatedAt() != null) {
-                    return b.getCreatedAt().compareTo(a.getCreatedAt());
-                }
-                if (a.getCreatedAt() != null) return -1;
-                if (b.getCreatedAt() != null) return 1;
-                return 0;
-            });
-            
-            // Añadir archivos huérfanos (archivos físicos sin TextEntry asociado)
-            if (Files.exists(uploadPath)) {
-                try {
-                    Files.list(uploadPath)
-                            .filter(Files::isRegularFile)
-                            .forEach(path -> {
-                                try {
-                                    String filename = path.getFileName().toString();
-                                    String audioUrl = "/uploads/audio/" + filename;
-                                    
-                                    // Verificar si ya está en la lista
-                                    boolean exists = textEntries.stream()
-                                            .anyMatch(entry -> audioUrl.equals(entry.getAudioUrl()));
-                                    
-                                    if (!exists) {
-                                        // Archivo huérfano
-                                        long fileSize = Files.size(path);
-                                        result.add(AudioFileInfo.builder()
-                                                .filename(filename)
-                                                .audioUrl(audioUrl)
-                                                .title("(Sin texto asociado)")
-                                                .username("(Desconocido)")
-                                                .textEntryId(null)
-                                                .createdAt(null)
-                                                .fileSize(fileSize)
-                                                .build());
-                                    }
-                                } catch (IOException e) {
-                                    log.warn("Error processing orphan file: {}", path.getFileName(), e);
-                                }
-                            });
-                } catch (IOException e) {
-                    log.warn("Error listing orphan files", e);
-                }
-            }
-            
-            log.info("=== FIN getAllAudioFilesWithInfo ===");
-            log.info("Returning {} audio files with info", result.size());
-            if (result.isEmpty()) {
-                log.warn("⚠️  WARNING: No audio files returned! Check logs above for details.");
-            } else {
-                log.info("Files to return:");
-                result.forEach(file -> {
-                    log.info("  - {} ({} - {})", file.getFilename(), file.getTitle(), file.getUsername());
-                });
-            }
-            return result;
-        } catch (Exception e) {
-            log.error("Error listing audio files with info", e);
-            return java.util.Collections.emptyList();
-        }
+    // Ubicación actual del fichero de una URL, o null si no existe
+    private Path audioPath(String audioUrl) {
+        return audioStorage.locate(audioStorage.filenameOf(audioUrl));
     }
 }
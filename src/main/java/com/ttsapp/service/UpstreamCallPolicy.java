@@ -0,0 +1,199 @@
+package com.ttsapp.service;
+
+import com.ttsapp.exception.UpstreamUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Resilience policy for per-chunk upstream calls: per-attempt timeout, hedged duplicate
+ * request once the attempt has been in flight longer than a latency percentile and the
+ * limiter has a permit to spare, retries with jittered exponential backoff and a circuit
+ * breaker that fails fast while the upstream is down.
+ * Every attempt, including hedges and retries, is paced by {@link UpstreamRateLimiter}.
+ */
+@Component
+@Slf4j
+public class UpstreamCallPolicy {
+
+    private final int maxRetries;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final Duration attemptTimeout;
+    private final boolean hedgingEnabled;
+    private final double hedgePercentile;
+    private final long minHedgeDelayNanos;
+    private final int minHedgeSamples;
+
+    private final UpstreamRateLimiter upstreamRateLimiter;
+    private final LatencyTracker latencyTracker = new LatencyTracker(512);
+    private final CircuitBreaker circuitBreaker;
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public UpstreamCallPolicy(UpstreamRateLimiter upstreamRateLimiter,
+                              @Value("${tts.upstream.retries:3}") int maxRetries,
+                              @Value("${tts.upstream.min-backoff:200ms}") Duration minBackoff,
+                              @Value("${tts.upstream.max-backoff:5s}") Duration maxBackoff,
+                              @Value("${tts.upstream.attempt-timeout:15s}") Duration attemptTimeout,
+                              @Value("${tts.upstream.hedge.enabled:true}") boolean hedgingEnabled,
+                              @Value("${tts.upstream.hedge.percentile:95}") double hedgePercentile,
+                              @Value("${tts.upstream.hedge.min-delay:100ms}") Duration minHedgeDelay,
+                              @Value("${tts.upstream.hedge.min-samples:20}") int minHedgeSamples,
+                              @Value("${tts.upstream.circuit.failure-threshold:10}") int failureThreshold,
+                              @Value("${tts.upstream.circuit.open-duration:30s}") Duration openDuration) {
+        this.upstreamRateLimiter = upstreamRateLimiter;
+        this.maxRetries = maxRetries;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        this.attemptTimeout = attemptTimeout;
+        this.hedgingEnabled = hedgingEnabled;
+        this.hedgePercentile = hedgePercentile;
+        this.minHedgeDelayNanos = minHedgeDelay.toNanos();
+        this.minHedgeSamples = minHedgeSamples;
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openDuration);
+    }
+
+    /**
+     * Run an upstream call under the policy.
+     * @param call Single upstream attempt; an empty result counts as a failed attempt
+     * @return Result of the first successful attempt
+     */
+    public Mono<byte[]> execute(Supplier<Mono<byte[]>> call) {
+        return Mono.defer(() -> hedged(call))
+                .retryWhen(Retry.backoff(maxRetries, minBackoff)
+                        .maxBackoff(maxBackoff)
+                        .jitter(0.5)
+                        .filter(UpstreamCallPolicy::isRetryable)
+                        .doBeforeRetry(signal -> {
+                            retries.incrementAndGet();
+                            log.debug("Retrying upstream call (attempt {}): {}",
+                                    signal.totalRetries() + 1, signal.failure().toString());
+                        })
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .doOnError(error -> failures.incrementAndGet());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("circuitState", circuitBreaker.getState().name());
+        stats.put("circuitOpenings", circuitBreaker.getOpenings());
+        stats.put("circuitRejected", circuitBreaker.getRejected());
+        stats.put("retries", retries.get());
+        stats.put("hedges", hedges.get());
+        stats.put("failures", failures.get());
+        stats.put("latencySamples", latencyTracker.getSampleCount());
+        stats.put("p50Ms", latencyTracker.percentile(50) / 1_000_000.0);
+        stats.put("p95Ms", latencyTracker.percentile(95) / 1_000_000.0);
+        stats.put("p99Ms", latencyTracker.percentile(99) / 1_000_000.0);
+        return stats;
+    }
+
+    private Mono<byte[]> hedged(Supplier<Mono<byte[]>> call) {
+        long hedgeDelay = hedgeDelayNanos();
+        if (hedgeDelay < 0) {
+            return attempt(call, false, () -> { });
+        }
+        // El plazo del duplicado cuenta desde que la principal sale hacia el servicio, no mientras
+        // espera permiso del limitador: si no, con la cola llena casi todas tendrían duplicado
+        Sinks.Empty<Void> sent = Sinks.empty();
+        Mono<byte[]> primary = attempt(call, false, sent::tryEmitEmpty);
+        // Si la primera petición tarda más que el percentil se lanza un duplicado y gana la primera respuesta.
+        // Un fallo del duplicado se ignora; un fallo de la principal se propaga para que actúen los reintentos
+        Mono<byte[]> hedge = sent.asMono()
+                .then(Mono.delay(Duration.ofNanos(hedgeDelay)))
+                .then(Mono.defer(() -> attempt(call, true, hedges::incrementAndGet)))
+                // Sin permiso libre en el limitador no se duplica: se espera a la principal
+                .switchIfEmpty(Mono.never())
+                .onErrorResume(error -> Mono.never());
+        return Mono.firstWithSignal(primary, hedge);
+    }
+
+    /**
+     * One attempt through the circuit breaker and the rate limiter.
+     * @param hedge Whether this is a hedge, which is only sent if the limiter has a free
+     *              permit right away and completes empty otherwise
+     * @param onSent Called once the request is about to be sent upstream
+     */
+    private Mono<byte[]> attempt(Supplier<Mono<byte[]>> call, boolean hedge, Runnable onSent) {
+        return Mono.defer(() -> {
+            if (!circuitBreaker.tryAcquire()) {
+                return Mono.error(new UpstreamUnavailableException(
+                        "El servicio de síntesis no está disponible temporalmente. Inténtalo de nuevo más tarde."));
+            }
+            // El límite de tiempo y la latencia cuentan desde que el limitador concede el permiso
+            Supplier<Mono<byte[]>> timed = () -> {
+                onSent.run();
+                long start = System.nanoTime();
+                return call.get()
+                        .timeout(attemptTimeout)
+                        .doOnNext(data -> latencyTracker.record(System.nanoTime() - start))
+                        .filter(data -> data.length > 0)
+                        .switchIfEmpty(Mono.error(() -> new EmptyAudioException()));
+            };
+            // Todo intento termina informando al circuit breaker; si es la llamada de prueba,
+            // uno que acabe sin resultado dejaría el circuito medio abierto para siempre
+            AtomicBoolean reported = new AtomicBoolean();
+            return (hedge ? upstreamRateLimiter.executeIfAvailable(timed) : upstreamRateLimiter.execute(timed))
+                    .doOnNext(data -> {
+                        reported.set(true);
+                        circuitBreaker.onSuccess();
+                    })
+                    .doOnError(error -> {
+                        if (isRetryable(error)) {
+                            reported.set(true);
+                            circuitBreaker.onFailure();
+                        } else if (error instanceof WebClientResponseException) {
+                            // El servicio respondió, aunque sea con un error que no es suyo (p. ej. 400)
+                            reported.set(true);
+                            circuitBreaker.onSuccess();
+                        }
+                    })
+                    // Cancelado, duplicado sin permiso del limitador o fallo antes de enviarse
+                    .doFinally(signal -> {
+                        if (!reported.get()) {
+                            circuitBreaker.onAbandoned();
+                        }
+                    });
+        });
+    }
+
+    private long hedgeDelayNanos() {
+        if (!hedgingEnabled || latencyTracker.getSampleCount() < minHedgeSamples
+                || circuitBreaker.getState() != CircuitBreaker.State.CLOSED) {
+            return -1;
+        }
+        return Math.max(minHedgeDelayNanos, latencyTracker.percentile(hedgePercentile));
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status == 429 || status >= 500;
+        }
+        return error instanceof WebClientRequestException
+                || error instanceof TimeoutException
+                || error instanceof EmptyAudioException;
+    }
+
+    private static class EmptyAudioException extends RuntimeException {
+        EmptyAudioException() {
+            super("Empty audio response from TTS service");
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.ttsapp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Adaptive rate limiter for upstream TTS requests, shared by every request in the JVM.
+ * Requests are paced by a token bucket whose rate follows AIMD: it grows additively
+ * while the upstream answers below the latency target and is cut multiplicatively
+ * on 429/5xx responses or when latency rises above the target.
+ */
+@Component
+@Slf4j
+public class UpstreamRateLimiter {
+
+    private final boolean enabled;
+    private final double minRate;
+    private final double maxRate;
+    private final int burst;
+    private final double additiveIncrease;
+    private final long latencyTargetNanos;
+
+    // Tasa actual (peticiones/segundo) guardada como bits de double para actualizarla con CAS
+    private final AtomicLong rateBits;
+    // Instante (nanoTime) a partir del cual se concede el siguiente permiso
+    private final AtomicLong nextFreeNanos = new AtomicLong(System.nanoTime());
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong slow = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    public UpstreamRateLimiter(@Value("${tts.rate.enabled:true}") boolean enabled,
+                               @Value("${tts.rate.initial:10}") double initialRate,
+                               @Value("${tts.rate.min:0.5}") double minRate,
+                               @Value("${tts.rate.max:50}") double maxRate,
+                               @Value("${tts.rate.burst:4}") int burst,
+                               @Value("${tts.rate.additive-increase:0.2}") double additiveIncrease,
+                               @Value("${tts.rate.latency-target:1500ms}") Duration latencyTarget) {
+        this.enabled = enabled;
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.burst = Math.max(1, burst);
+        this.additiveIncrease = additiveIncrease;
+        this.latencyTargetNanos = latencyTarget.toNanos();
+        this.rateBits = new AtomicLong(Double.doubleToLongBits(Math.max(minRate, Math.min(maxRate, initialRate))));
+    }
+
+    /**
+     * Run an upstream call once the limiter grants a permit, feeding its outcome
+     * back into the rate.
+     * @param call Upstream call
+     * @return Result of the call
+     */
+    public <T> Mono<T> execute(Supplier<Mono<T>> call) {
+        if (!enabled) {
+            return Mono.defer(call);
+        }
+        return Mono.defer(() -> {
+            long waitNanos = reserve();
+            if (waitNanos <= 0) {
+                return timed(call);
+            }
+            totalWaitNanos.addAndGet(waitNanos);
+            return Mono.delay(Duration.ofNanos(waitNanos)).then(timed(call));
+        });
+    }
+
+    /**
+     * Like {@link #execute}, but only if a permit is free right now. For optional requests,
+     * such as hedges, that must not queue behind regular traffic when the limiter is busy.
+     * @param call Upstream call
+     * @return Result of the call, or empty without calling it if no permit is free
+     */
+    public <T> Mono<T> executeIfAvailable(Supplier<Mono<T>> call) {
+        if (!enabled) {
+            return Mono.defer(call);
+        }
+        return Mono.defer(() -> tryReserve() ? timed(call) : Mono.<T>empty());
+    }
+
+    public double getRate() {
+        return Double.longBitsToDouble(rateBits.get());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long requestCount = requests.get();
+        stats.put("enabled", enabled);
+        stats.put("rate", getRate());
+        stats.put("inFlight", inFlight.get());
+        stats.put("requests", requestCount);
+        stats.put("throttled", throttled.get());
+        stats.put("slow", slow.get());
+        stats.put("avgWaitMs", requestCount > 0 ? totalWaitNanos.get() / 1_000_000.0 / requestCount : 0.0);
+        return stats;
+    }
+
+    private <T> Mono<T> timed(Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            inFlight.incrementAndGet();
+            requests.incrementAndGet();
+            return call.get()
+                    .doOnSuccess(result -> onSuccess(System.nanoTime() - start))
+                    .doOnError(this::onError)
+                    .doFinally(signal -> inFlight.decrementAndGet());
+        });
+    }
+
+    // Reserva el siguiente permiso y devuelve cuánto hay que esperar para usarlo
+    private long reserve() {
+        while (true) {
+            long now = System.nanoTime();
+            long interval = (long) (1_000_000_000L / getRate());
+            long previous = nextFreeNanos.get();
+            // Tras un periodo inactivo se permiten hasta "burst" peticiones seguidas
+            long start = Math.max(previous, now - (burst - 1) * interval);
+            if (nextFreeNanos.compareAndSet(previous, start + interval)) {
+                return start - now;
+            }
+        }
+    }
+
+    // Reserva un permiso solo si se puede usar ya; si habría que esperar no reserva nada
+    private boolean tryReserve() {
+        while (true) {
+            long now = System.nanoTime();
+            long interval = (long) (1_000_000_000L / getRate());
+            long previous = nextFreeNanos.get();
+            long start = Math.max(previous, now - (burst - 1) * interval);
+            if (start > now) {
+                return false;
+            }
+            if (nextFreeNanos.compareAndSet(previous, start + interval)) {
+                return true;
+            }
+        }
+    }
+
+    private void onSuccess(long latencyNanos) {
+        if (latencyNanos > latencyTargetNanos) {
+            slow.incrementAndGet();
+            updateRate(rate -> rate * 0.9);
+        } else {
+            updateRate(rate -> rate + additiveIncrease);
+        }
+    }
+
+    private void onError(Throwable error) {
+        if (isThrottle(error)) {
+            throttled.incrementAndGet();
+            double rate = updateRate(current -> current * 0.5);
+            log.warn("Upstream throttling ({}), rate reduced to {} req/s", error.getMessage(), String.format("%.2f", rate));
+        }
+    }
+
+    private static boolean isThrottle(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status == 429 || status >= 500;
+        }
+        return false;
+    }
+
+    private double updateRate(DoubleUnaryOperator update) {
+        while (true) {
+            long previousBits = rateBits.get();
+            double next = Math.max(minRate, Math.min(maxRate, update.applyAsDouble(Double.longBitsToDouble(previousBits))));
+            if (rateBits.compareAndSet(previousBits, Double.doubleToLongBits(next))) {
+                return next;
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.ttsapp.service;
+
+import com.ttsapp.entity.User;
+import com.ttsapp.exception.QuotaExceededException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user token buckets on the characters sent to the TTS service, with the rate set per role.
+ * Each bucket holds one minute of characters and is stored as a single timestamp: the instant
+ * at which it will be full again. Charging a request moves that instant forward with a CAS,
+ * so there are no locks and a user costs one map entry. Users whose bucket is full again are
+ * dropped from the map periodically; a dropped bucket is marked first, so a request that
+ * charged it concurrently retries on the new one instead of losing the charge.
+ * A request larger than the whole bucket is accepted once the bucket is full and empties it,
+ * so long documents are still possible but never leave more than one minute of debt.
+ */
+@Component
+@Slf4j
+public class UserCharacterQuota {
+
+    private final boolean enabled;
+    // Nanosegundos que tarda en reponerse un carácter, por rol; 0 = sin límite
+    private final Map<User.Role, Long> nanosPerChar = new EnumMap<>(User.Role.class);
+    private final Map<User.Role, Long> capacity = new EnumMap<>(User.Role.class);
+
+    // Valor de un cubo que la limpieza ya ha quitado del mapa; quien lo vea debe usar otro
+    private static final long EVICTED = Long.MIN_VALUE;
+
+    // Instante (nanoTime) en que el cubo de cada usuario vuelve a estar lleno
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicLong allowed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong charsCharged = new AtomicLong();
+
+    public UserCharacterQuota(@Value("${tts.quota.enabled:true}") boolean enabled,
+                              @Value("${tts.quota.chars-per-minute.user:20000}") long userCharsPerMinute,
+                              @Value("${tts.quota.chars-per-minute.admin:0}") long adminCharsPerMinute) {
+        this.enabled = enabled;
+        configure(User.Role.USER, userCharsPerMinute);
+        configure(User.Role.ADMIN, adminCharsPerMinute);
+    }
+
+    /**
+     * Charge characters about to be synthesized to the current user.
+     * @param characters Number of characters
+     * @throws QuotaExceededException if the user's bucket does not have them yet
+     */
+    public void acquire(int characters) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (!enabled || characters <= 0 || authentication == null) {
+            return;
+        }
+        User.Role role = roleOf(authentication);
+        long interval = nanosPerChar.get(role);
+        if (interval == 0) {
+            return;
+        }
+
+        long bucketNanos = capacity.get(role) * interval;
+        long costNanos = characters * interval;
+        // Lo que hay que tener en el cubo: la petición entera, o el cubo lleno si no cabe
+        long requiredNanos = Math.min(costNanos, bucketNanos);
+        AtomicLong fullAt = bucketOf(authentication.getName());
+        while (true) {
+            long now = System.nanoTime();
+            long previous = fullAt.get();
+            if (previous == EVICTED) {
+                fullAt = bucketOf(authentication.getName());
+                continue;
+            }
+            long debtNanos = Math.max(0, previous - now);
+            long waitNanos = debtNanos - (bucketNanos - requiredNanos);
+            if (waitNanos > 0) {
+                rejected.incrementAndGet();
+                throw new QuotaExceededException("Character quota exceeded: " + capacity.get(role)
+                        + " characters per minute", Duration.ofNanos(waitNanos));
+            }
+            // El cubo no baja de vacío: una petición mayor que el cubo solo lo vacía
+            long next = Math.min(Math.max(previous, now) + costNanos, now + bucketNanos);
+            if (fullAt.compareAndSet(previous, next)) {
+                allowed.incrementAndGet();
+                charsCharged.addAndGet(characters);
+                return;
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("users", buckets.size());
+        stats.put("allowed", allowed.get());
+        stats.put("rejected", rejected.get());
+        stats.put("charsCharged", charsCharged.get());
+        capacity.forEach((role, chars) -> stats.put(role.name().toLowerCase() + "CharsPerMinute", chars));
+        return stats;
+    }
+
+    // Un cubo ya lleno equivale a no tener entrada
+    @Scheduled(fixedDelayString = "${tts.quota.cleanup-interval:PT5M}")
+    public void evictFullBuckets() {
+        long now = System.nanoTime();
+        buckets.forEach((user, fullAt) -> {
+            long value = fullAt.get();
+            // Se marca con CAS antes de quitarlo: si un cargo se ha colado entre medias, el CAS
+            // falla y el cubo se queda; si no, ese cargo verá la marca y usará un cubo nuevo
+            if (value != EVICTED && value - now <= 0 && fullAt.compareAndSet(value, EVICTED)) {
+                buckets.remove(user, fullAt);
+            }
+        });
+    }
+
+    private AtomicLong bucketOf(String user) {
+        AtomicLong fullAt = buckets.get(user);
+        if (fullAt != null && fullAt.get() != EVICTED) {
+            return fullAt;
+        }
+        return buckets.compute(user, (name, current) ->
+                current == null || current.get() == EVICTED ? new AtomicLong(System.nanoTime()) : current);
+    }
+
+    private void configure(User.Role role, long charsPerMinute) {
+        capacity.put(role, Math.max(0, charsPerMinute));
+        nanosPerChar.put(role, charsPerMinute > 0 ? TimeUnit.MINUTES.toNanos(1) / charsPerMinute : 0);
+    }
+
+    private static User.Role roleOf(Authentication authentication) {
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (("ROLE_" + User.Role.ADMIN.name()).equals(authority.getAuthority())) {
+                return User.Role.ADMIN;
+            }
+        }
+        return User.Role.USER;
+    }
+}
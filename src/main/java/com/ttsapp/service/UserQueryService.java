@@ -1,5 +1,7 @@
 package com.ttsapp.service;
 
+import com.ttsapp.dto.AdminListQuery;
+import com.ttsapp.dto.CursorPage;
 import com.ttsapp.dto.UserResponse;
 import com.ttsapp.entity.User;
 
@@ -16,6 +18,13 @@ public interface UserQueryService {
      */
     List<UserResponse> getAllUsers();
     
+    /**
+     * Get one page of users for admin view, ordered by creation date.
+     * @param query Filters and position of the page
+     * @return Page of UserResponse DTOs
+     */
+    CursorPage<UserResponse> getUsersPage(AdminListQuery query);
+    
     /**
      * Get user by ID.
      * @param id User ID
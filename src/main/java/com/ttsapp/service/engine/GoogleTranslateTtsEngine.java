@@ -0,0 +1,53 @@
+package com.ttsapp.service.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Engine backed by the public Google Translate TTS endpoint.
+ */
+@Component
+@ConditionalOnProperty(name = "tts.engine", havingValue = "google", matchIfMissing = true)
+@Slf4j
+public class GoogleTranslateTtsEngine implements TtsEngine {
+
+    private static final String GOOGLE_TTS_URL = "https://translate.google.com/translate_tts";
+
+    private final WebClient webClient = WebClient.builder()
+            .defaultHeader(HttpHeaders.USER_AGENT, "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36")
+            .defaultHeader(HttpHeaders.ACCEPT, "audio/mpeg, audio/*, */*")
+            .defaultHeader(HttpHeaders.ACCEPT_LANGUAGE, "en-US,en;q=0.9")
+            .build();
+
+    @Override
+    public String getName() {
+        return "google";
+    }
+
+    @Override
+    public Mono<byte[]> synthesize(String text, String lang, String speed) {
+        String encodedText = URLEncoder.encode(text, StandardCharsets.UTF_8);
+        String url = String.format(
+            "%s?ie=UTF-8&q=%s&tl=%s&client=tw-ob&ttsspeed=%s",
+            GOOGLE_TTS_URL,
+            encodedText,
+            lang,
+            speed
+        );
+
+        log.debug("Requesting TTS from Google: {}", url);
+
+        return webClient.get()
+                .uri(URI.create(url))
+                .retrieve()
+                .bodyToMono(byte[].class);
+    }
+}
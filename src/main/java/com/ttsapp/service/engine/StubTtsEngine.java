@@ -0,0 +1,72 @@
+package com.ttsapp.service.engine;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Deterministic local engine for offline load tests and benchmarks.
+ * Returns silent but valid MPEG-1 Layer III frames (128 kbps, 44.1 kHz, mono) after a
+ * configurable delay. The number of frames grows with the text length and the extra
+ * latency jitter is derived from the text, so identical requests behave identically.
+ */
+@Component
+@ConditionalOnProperty(name = "tts.engine", havingValue = "stub")
+public class StubTtsEngine implements TtsEngine {
+
+    // Cabecera de trama: sync, MPEG-1, Layer III, sin CRC, 128 kbps, 44100 Hz, sin padding, mono
+    private static final byte[] FRAME_HEADER = {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, (byte) 0xC0};
+    // 144 * 128000 / 44100
+    private static final int FRAME_LENGTH = 417;
+    // Etiqueta ID3v2.4 vacía, como la que precede al audio del servicio real
+    private static final byte[] ID3_HEADER = {'I', 'D', '3', 4, 0, 0, 0, 0, 0, 0};
+
+    private final double framesPerChar;
+    private final int minFrames;
+    private final long latencyMs;
+    private final long latencyJitterMs;
+    private final boolean id3Header;
+
+    public StubTtsEngine(@Value("${tts.stub.frames-per-char:2.5}") double framesPerChar,
+                         @Value("${tts.stub.min-frames:10}") int minFrames,
+                         @Value("${tts.stub.latency-ms:150}") long latencyMs,
+                         @Value("${tts.stub.latency-jitter-ms:0}") long latencyJitterMs,
+                         @Value("${tts.stub.id3-header:true}") boolean id3Header) {
+        this.framesPerChar = framesPerChar;
+        this.minFrames = minFrames;
+        this.latencyMs = latencyMs;
+        this.latencyJitterMs = latencyJitterMs;
+        this.id3Header = id3Header;
+    }
+
+    @Override
+    public String getName() {
+        return "stub";
+    }
+
+    @Override
+    public Mono<byte[]> synthesize(String text, String lang, String speed) {
+        int frames = Math.max(minFrames, (int) Math.ceil(text.length() * framesPerChar));
+        long jitter = latencyJitterMs > 0 ? Math.floorMod(text.hashCode(), latencyJitterMs + 1) : 0;
+        long delay = latencyMs + jitter;
+
+        Mono<byte[]> audio = Mono.fromSupplier(() -> buildAudio(frames));
+        return delay > 0 ? audio.delaySubscription(Duration.ofMillis(delay)) : audio;
+    }
+
+    private byte[] buildAudio(int frames) {
+        int offset = id3Header ? ID3_HEADER.length : 0;
+        byte[] audio = new byte[offset + frames * FRAME_LENGTH];
+        if (id3Header) {
+            System.arraycopy(ID3_HEADER, 0, audio, 0, ID3_HEADER.length);
+        }
+        // El resto de la trama a cero es información lateral y datos de silencio válidos
+        for (int i = 0; i < frames; i++) {
+            System.arraycopy(FRAME_HEADER, 0, audio, offset + i * FRAME_LENGTH, FRAME_HEADER.length);
+        }
+        return audio;
+    }
+}
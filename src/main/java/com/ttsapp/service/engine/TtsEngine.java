@@ -0,0 +1,25 @@
+package com.ttsapp.service.engine;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Backend that turns a single chunk of text into MP3 audio.
+ * The active implementation is selected with the {@code tts.engine} property.
+ */
+public interface TtsEngine {
+
+    /**
+     * Engine identifier, also used to keep cached audio of different engines apart.
+     * @return Engine name
+     */
+    String getName();
+
+    /**
+     * Synthesize one chunk. The text already fits the request limits of {@link com.ttsapp.service.TextChunker}.
+     * @param text Chunk text
+     * @param lang Language code (es, en)
+     * @param speed Speech speed
+     * @return MP3 bytes, empty if the engine returned no audio
+     */
+    Mono<byte[]> synthesize(String text, String lang, String speed);
+}
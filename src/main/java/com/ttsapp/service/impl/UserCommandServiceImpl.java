@@ -9,6 +9,7 @@ import com.ttsapp.exception.UserNotFoundException;
 import com.ttsapp.exception.UsernameAlreadyExistsException;
 import com.ttsapp.repository.UserRepository;
 import com.ttsapp.security.JwtTokenProvider;
+import com.ttsapp.service.SharedAudioService;
 import com.ttsapp.service.UserCommandService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -34,6 +35,7 @@ public class UserCommandServiceImpl implements UserCommandService {
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider tokenProvider;
     private final AuthenticationManager authenticationManager;
+    private final SharedAudioService sharedAudioService;
     
     @Override
     @Transactional
@@ -175,6 +177,8 @@ public class UserCommandServiceImpl implements UserCommandService {
         log.info("Deleting user with ID: {}", userId);
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException("Usuario no encontrado"));
+        // Los textos se borran en cascada; antes se sueltan sus referencias al audio
+        user.getTextEntries().forEach(entry -> sharedAudioService.release(entry.getAudioUrl()));
         userRepository.delete(user);
         log.info("User deleted successfully");
     }
@@ -1,8 +1,12 @@
 package com.ttsapp.service.impl;
 
+import com.ttsapp.dto.AdminListQuery;
+import com.ttsapp.dto.CursorPage;
 import com.ttsapp.dto.UserResponse;
 import com.ttsapp.entity.User;
 import com.ttsapp.mapper.UserMapper;
+import com.ttsapp.repository.AdminListSpecifications;
+import com.ttsapp.repository.TextEntryRepository;
 import com.ttsapp.repository.UserRepository;
 import com.ttsapp.service.UserQueryService;
 import lombok.RequiredArgsConstructor;
@@ -11,7 +15,9 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Implementation of UserQueryService.
@@ -24,6 +30,7 @@ import java.util.List;
 public class UserQueryServiceImpl implements UserQueryService {
     
     private final UserRepository userRepository;
+    private final TextEntryRepository textEntryRepository;
     private final UserMapper userMapper;
     
     @Override
@@ -100,6 +107,26 @@ public class UserQueryServiceImpl implements UserQueryService {
         }
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<UserResponse> getUsersPage(AdminListQuery query) {
+        List<User> users = userRepository.findBy(AdminListSpecifications.users(query),
+                q -> q.sortBy(AdminListSpecifications.order(query.isAscending()))
+                        .limit(query.getLimit() + 1)
+                        .all());
+        
+        // Textos de los usuarios de la página en una sola consulta, sin cargar las colecciones
+        Map<Long, Long> textCounts = new HashMap<>();
+        if (!users.isEmpty()) {
+            for (Object[] row : textEntryRepository.countByUserIds(users.stream().map(User::getId).toList())) {
+                textCounts.put((Long) row[0], (Long) row[1]);
+            }
+        }
+        return CursorPage.of(users, query.getLimit(),
+                user -> new CursorPage.Key(user.getCreatedAt(), user.getId()),
+                user -> userMapper.toResponse(user, textCounts.getOrDefault(user.getId(), 0L)));
+    }
+    
     @Override
     @Transactional(readOnly = true)
     public User getUserById(Long id) {
@@ -0,0 +1,91 @@
+package com.ttsapp.service.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Where generated audio files live on disk.
+ * Files are addressed by name and exposed under a flat URL ({@code /uploads/audio/<name>})
+ * no matter how the implementation lays them out, so stored URLs never change.
+ * Shards are subdirectories holding a bounded share of the files; the empty shard key is
+ * the storage root, where files written before sharding may still be waiting to be moved.
+ */
+public interface AudioStorage {
+
+    String URL_PREFIX = "/uploads/audio/";
+
+    /**
+     * Directory for files while they are being written. On the same file system as the
+     * storage, so moving a finished file into place is atomic.
+     */
+    Path getTempDirectory();
+
+    /**
+     * Path where a new file must be written, creating its directory if needed.
+     * @param filename File name
+     * @return Target path
+     */
+    Path pathForNewFile(String filename) throws IOException;
+
+    /**
+     * Current location of a file.
+     * @param filename File name
+     * @return Path of the file, or null if it does not exist or the name is not valid
+     */
+    Path locate(String filename);
+
+    /**
+     * Delete a file wherever it is.
+     * @param filename File name
+     * @return true if a file was deleted
+     */
+    boolean delete(String filename) throws IOException;
+
+    /**
+     * Public URL of a file.
+     */
+    default String urlOf(String filename) {
+        return URL_PREFIX + filename;
+    }
+
+    /**
+     * File name of a public URL.
+     * @return File name, or null if the URL does not point to a valid name
+     */
+    default String filenameOf(String audioUrl) {
+        if (audioUrl == null) {
+            return null;
+        }
+        String filename = audioUrl.substring(audioUrl.lastIndexOf('/') + 1);
+        return isValidFilename(filename) ? filename : null;
+    }
+
+    /**
+     * Names are a single path element: no separators, no "." or "..".
+     */
+    default boolean isValidFilename(String filename) {
+        return filename != null && !filename.isEmpty() && !filename.equals(".") && !filename.equals("..")
+                && filename.indexOf('/') < 0 && filename.indexOf('\\') < 0 && filename.indexOf('\0') < 0;
+    }
+
+    /**
+     * Shard that comes after the given one, in a stable order starting with the root ("").
+     * Lets callers walk the storage a shard at a time.
+     * @param shard Current shard key
+     * @return Next shard key, or null after the last one
+     */
+    String nextShard(String shard) throws IOException;
+
+    /**
+     * Files of one shard, sorted by name.
+     * @param shard Shard key
+     */
+    List<Path> listShard(String shard) throws IOException;
+
+    /**
+     * Every file in the storage. The stream must be closed.
+     */
+    Stream<Path> listAll() throws IOException;
+}
@@ -0,0 +1,145 @@
+package com.ttsapp.service.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves audio files written with the old flat layout into their shard directory while the
+ * application keeps serving them. Each pass moves a bounded batch with an atomic rename, so
+ * a file is always at one of the two places {@link ShardedFileAudioStorage#locate} looks at,
+ * and public URLs do not change. Once the root holds no more files the passes are no-ops.
+ */
+@Component
+@Slf4j
+public class AudioStorageMigrator {
+
+    private final ShardedFileAudioStorage storage;
+    private final boolean enabled;
+    private final int batchSize;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong filesMoved = new AtomicLong();
+    private final AtomicLong duplicatesRemoved = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile boolean completed;
+    private volatile Instant lastRunAt;
+
+    public AudioStorageMigrator(ShardedFileAudioStorage storage,
+                                @Value("${tts.storage.migration.enabled:true}") boolean enabled,
+                                @Value("${tts.storage.migration.batch-size:1000}") int batchSize) {
+        this.storage = storage;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Scheduled(initialDelayString = "${tts.storage.migration.initial-delay:PT30S}",
+            fixedDelayString = "${tts.storage.migration.interval:PT1M}")
+    public void scheduledMigration() {
+        if (enabled && !completed) {
+            migrateBatch();
+        }
+    }
+
+    /**
+     * Move the next batch of files from the root into their shards.
+     * @return Result of the pass
+     */
+    public synchronized Map<String, Object> migrateBatch() {
+        long start = System.nanoTime();
+        int moved = 0;
+        int pending = 0;
+        try {
+            List<Path> batch = legacyBatch();
+            pending = batch.size();
+            for (Path file : batch) {
+                if (migrate(file)) {
+                    moved++;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Audio storage migration failed", e);
+        }
+        // Un lote incompleto significa que la raíz ya no tiene más ficheros
+        completed = pending < batchSize;
+        runs.incrementAndGet();
+        lastRunAt = Instant.now();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        if (moved > 0) {
+            log.info("Audio storage migration: {} files moved into shards in {} ms", moved, elapsedMillis);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("moved", moved);
+        result.put("completed", completed);
+        result.put("elapsedMs", elapsedMillis);
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("completed", completed);
+        stats.put("runs", runs.get());
+        stats.put("filesMoved", filesMoved.get());
+        stats.put("duplicatesRemoved", duplicatesRemoved.get());
+        stats.put("failures", failures.get());
+        stats.put("lastRunAt", lastRunAt != null ? lastRunAt.toString() : null);
+        return stats;
+    }
+
+    // Los primeros batchSize ficheros que siguen en la raíz, sin leer el directorio entero
+    private List<Path> legacyBatch() throws IOException {
+        List<Path> batch = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(storage.getRoot(), Files::isRegularFile)) {
+            for (Path file : files) {
+                batch.add(file);
+                if (batch.size() >= batchSize) {
+                    break;
+                }
+            }
+        }
+        return batch;
+    }
+
+    private boolean migrate(Path file) {
+        String filename = file.getFileName().toString();
+        try {
+            Path target = storage.pathForNewFile(filename);
+            // Rename atómico: quien lo busque lo encuentra en la raíz o en su shard, nunca a medias
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+            filesMoved.incrementAndGet();
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            // Ya hay una copia en el shard; los nombres son UUID y no cambian, sobra la de la raíz
+            try {
+                Files.deleteIfExists(file);
+                duplicatesRemoved.incrementAndGet();
+            } catch (IOException ex) {
+                failures.incrementAndGet();
+                log.warn("Could not remove duplicate audio file {}", file, ex);
+            }
+        } catch (NoSuchFileException e) {
+            // Borrado mientras tanto
+        } catch (IOException | IllegalArgumentException e) {
+            failures.incrementAndGet();
+            log.warn("Could not move audio file {} into its shard", file, e);
+        }
+        return false;
+    }
+}
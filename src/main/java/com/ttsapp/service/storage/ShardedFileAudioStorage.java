@@ -0,0 +1,226 @@
+package com.ttsapp.service.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Audio files on the local disk, spread over two levels of 256 directories picked from a
+ * hash of the file name ({@code ab/cd/<name>}). Each directory stays small however many
+ * files there are, so creating, opening and listing files costs the same at any size.
+ * Files from the old flat layout are still found in the root until
+ * {@link AudioStorageMigrator} moves them into their shard.
+ */
+@Component
+@Slf4j
+public class ShardedFileAudioStorage implements AudioStorage {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path root;
+    private final Path tempDirectory;
+
+    public ShardedFileAudioStorage(@Value("${tts.storage.root:uploads/audio}") String root,
+                                   @Value("${tts.storage.temp-dir:uploads/tmp}") String tempDirectory) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.tempDirectory = Paths.get(tempDirectory).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(this.root);
+            Files.createDirectories(this.tempDirectory);
+        } catch (IOException e) {
+            log.error("Failed to create audio storage directories", e);
+        }
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    @Override
+    public Path getTempDirectory() {
+        return tempDirectory;
+    }
+
+    @Override
+    public Path pathForNewFile(String filename) throws IOException {
+        requireValid(filename);
+        Path directory = root.resolve(shardOf(filename));
+        Files.createDirectories(directory);
+        return shardedPath(filename);
+    }
+
+    @Override
+    public Path locate(String filename) {
+        if (!isValidFilename(filename)) {
+            return null;
+        }
+        Path sharded = shardedPath(filename);
+        if (Files.isRegularFile(sharded)) {
+            return sharded;
+        }
+        Path legacy = legacyPath(filename);
+        if (Files.isRegularFile(legacy)) {
+            return legacy;
+        }
+        // El migrador puede haberlo movido entre las dos comprobaciones
+        return Files.isRegularFile(sharded) ? sharded : null;
+    }
+
+    @Override
+    public boolean delete(String filename) throws IOException {
+        if (!isValidFilename(filename)) {
+            return false;
+        }
+        // Primero la raíz: si el migrador lo mueve a la vez, después se encuentra en su shard
+        boolean deleted = Files.deleteIfExists(legacyPath(filename));
+        return Files.deleteIfExists(shardedPath(filename)) || deleted;
+    }
+
+    /**
+     * Besides the checks on the name itself, the name must resolve to a file directly inside
+     * the storage root. That also rules out names the blacklist does not know about, such as
+     * drive-relative paths ("C:foo") or alternate data streams on Windows.
+     */
+    @Override
+    public boolean isValidFilename(String filename) {
+        return AudioStorage.super.isValidFilename(filename) && resolveIn(root, filename) != null;
+    }
+
+    /**
+     * Whether a file in the root is a leftover of the flat layout waiting to be moved.
+     */
+    public boolean isLegacy(Path file) {
+        return root.equals(file.toAbsolutePath().normalize().getParent());
+    }
+
+    /**
+     * Shard directory key of a file name, e.g. {@code "3f/a0"}.
+     */
+    public String shardOf(String filename) {
+        byte[] hash = sha256(filename);
+        return HEX.toHexDigits(hash[0]) + "/" + HEX.toHexDigits(hash[1]);
+    }
+
+    // Solo se llaman con nombres ya validados, así que la ruta siempre queda dentro del directorio
+    Path shardedPath(String filename) {
+        return requireInside(root.resolve(shardOf(filename)), filename);
+    }
+
+    Path legacyPath(String filename) {
+        return requireInside(root, filename);
+    }
+
+    @Override
+    public String nextShard(String shard) throws IOException {
+        String first = "";
+        String second = "";
+        if (shard != null && !shard.isEmpty()) {
+            int slash = shard.indexOf('/');
+            first = shard.substring(0, slash);
+            second = shard.substring(slash + 1);
+        }
+        // Siguiente subdirectorio dentro del mismo primer nivel
+        if (!first.isEmpty()) {
+            String next = smallestAfter(root.resolve(first), second);
+            if (next != null) {
+                return first + "/" + next;
+            }
+        }
+        // Si no, el primero del siguiente primer nivel que tenga alguno
+        String level = first;
+        while ((level = smallestAfter(root, level)) != null) {
+            String next = smallestAfter(root.resolve(level), "");
+            if (next != null) {
+                return level + "/" + next;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<Path> listShard(String shard) throws IOException {
+        Path directory = shard == null || shard.isEmpty() ? root : root.resolve(shard);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, Files::isRegularFile)) {
+            stream.forEach(files::add);
+        } catch (NoSuchFileException e) {
+            return List.of();
+        }
+        files.sort(null);
+        return files;
+    }
+
+    @Override
+    public Stream<Path> listAll() throws IOException {
+        return Files.walk(root, 3)
+                .filter(Files::isRegularFile);
+    }
+
+    // Nombre de subdirectorio de shard más pequeño posterior a "after", o null si no hay
+    private static String smallestAfter(Path directory, String after) throws IOException {
+        String smallest = null;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path entry : stream) {
+                String name = entry.getFileName().toString();
+                if (isShardName(name) && name.compareTo(after) > 0
+                        && (smallest == null || name.compareTo(smallest) < 0)) {
+                    smallest = name;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        return smallest;
+    }
+
+    private static boolean isShardName(String name) {
+        return name.length() == 2 && HexFormat.isHexDigit(name.charAt(0)) && HexFormat.isHexDigit(name.charAt(1));
+    }
+
+    private void requireValid(String filename) {
+        if (!isValidFilename(filename)) {
+            throw new IllegalArgumentException("Invalid audio file name: " + filename);
+        }
+    }
+
+    private static Path requireInside(Path directory, String filename) {
+        Path path = resolveIn(directory, filename);
+        if (path == null) {
+            throw new IllegalArgumentException("Invalid audio file name: " + filename);
+        }
+        return path;
+    }
+
+    // Ruta del nombre dentro del directorio, o null si al normalizarla su padre es otro directorio
+    private static Path resolveIn(Path directory, String filename) {
+        try {
+            Path path = directory.resolve(filename).normalize();
+            return directory.equals(path.getParent()) ? path : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.ttsapp.controller;
+
+import com.ttsapp.security.JwtTokenProvider;
+import com.ttsapp.service.engine.StubTtsEngine;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * With virtual threads, blocking /api/tts/speak calls are not capped by the Tomcat pool:
+ * more requests than platform threads wait on the upstream at the same time.
+ * The scheduler and rate limiter are off so that only the request threads could limit them.
+ * Concurrency is measured at the engine rather than by wall-clock time, which depends on
+ * how many CPUs run the test.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.threads.virtual.enabled=true",
+        "server.tomcat.threads.max=" + VirtualThreadLoadTest.PLATFORM_THREADS,
+        "server.tomcat.threads.min-spare=" + VirtualThreadLoadTest.PLATFORM_THREADS,
+        "tts.stub.latency-ms=500",
+        "tts.scheduler.enabled=false",
+        "tts.rate.enabled=false",
+        "tts.cache.speak.enabled=false"
+})
+@ActiveProfiles("test")
+class VirtualThreadLoadTest {
+
+    static final int PLATFORM_THREADS = 8;
+    private static final int REQUESTS = 64;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @SpyBean
+    private StubTtsEngine ttsEngine;
+
+    @Value("${tts.stub.latency-ms}")
+    private long latencyMs;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    @Test
+    void concurrentSpeakRequestsScalePastThePlatformThreadLimit() {
+        doAnswer(invocation -> ((Mono<?>) invocation.callRealMethod())
+                .doOnSubscribe(subscription -> peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                .doFinally(signal -> inFlight.decrementAndGet()))
+                .when(ttsEngine).synthesize(anyString(), anyString(), anyString());
+        String token = tokenProvider.generateToken("admin", "ADMIN");
+        HttpClient client = HttpClient.newHttpClient();
+        // Calentamiento: conexiones abiertas y código compilado antes de medir
+        speakConcurrently(client, token, PLATFORM_THREADS);
+
+        peakInFlight.set(0);
+        long start = System.nanoTime();
+        speakConcurrently(client, token, REQUESTS);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Con un hilo de plataforma por petición nunca habría más de PLATFORM_THREADS a la vez
+        long platformBoundMs = (long) REQUESTS / PLATFORM_THREADS * latencyMs;
+        System.out.printf("%d requests with %d ms upstream latency: %d ms (platform-thread bound %d ms), "
+                + "peak %d upstream calls in flight%n", REQUESTS, latencyMs, elapsedMs, platformBoundMs, peakInFlight.get());
+        assertThat(peakInFlight.get()).isGreaterThan(2 * PLATFORM_THREADS);
+    }
+
+    private void speakConcurrently(HttpClient client, String token, int requests) {
+        String run = UUID.randomUUID().toString();
+        List<CompletableFuture<HttpResponse<byte[]>>> responses = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            // Textos distintos: ninguna petición se junta con otra ni sale de una caché
+            String text = URLEncoder.encode("Petición " + i + " " + run, StandardCharsets.UTF_8);
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/tts/speak?text=" + text))
+                    .header("Cookie", "token=" + token)
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()));
+        }
+        for (CompletableFuture<HttpResponse<byte[]>> response : responses) {
+            assertThat(response.join().statusCode()).isEqualTo(200);
+            assertThat(response.join().body()).isNotEmpty();
+        }
+    }
+}
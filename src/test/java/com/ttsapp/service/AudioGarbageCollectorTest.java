@@ -0,0 +1,76 @@
+package com.ttsapp.service;
+
+import com.ttsapp.entity.StoredAudio;
+import com.ttsapp.service.storage.AudioStorage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The sweep only removes files nobody holds a reference to, including references taken
+ * before the entry that uses them is saved.
+ * Batch and per-pass limits are raised so one pass covers every file the other tests left.
+ */
+@SpringBootTest(properties = {
+        "tts.gc.batch-size=100000",
+        "tts.gc.max-deletes-per-run=100000"
+})
+@ActiveProfiles("test")
+class AudioGarbageCollectorTest {
+
+    private static final String VOICE = "es-ES-ElviraNeural";
+
+    @Autowired
+    private AudioGarbageCollector audioGarbageCollector;
+
+    @Autowired
+    private SharedAudioService sharedAudioService;
+
+    @Autowired
+    private TtsService ttsService;
+
+    @Autowired
+    private AudioStorage audioStorage;
+
+    @Test
+    void referenceWithoutEntryIsKept() throws Exception {
+        // Referencia tomada como en una edición o un lote, antes de guardar la entrada
+        StoredAudio audio = sharedAudioService.obtain("Audio aún sin entrada " + UUID.randomUUID(), VOICE, null);
+        age(audioStorage.locate(audioStorage.filenameOf(audio.getAudioUrl())));
+
+        audioGarbageCollector.sweep();
+
+        assertThat(ttsService.audioFileExists(audio.getAudioUrl())).isTrue();
+        assertThat(sharedAudioService.findAudioFile(audio.getAudioUrl())).isPresent();
+
+        sharedAudioService.release(audio.getAudioUrl());
+        assertThat(ttsService.audioFileExists(audio.getAudioUrl())).isFalse();
+    }
+
+    @Test
+    void fileWithoutRecordOrEntryIsRemoved() throws Exception {
+        String filename = UUID.randomUUID() + ".mp3";
+        Path file = audioStorage.pathForNewFile(filename);
+        Files.write(file, new byte[]{1, 2, 3});
+        age(file);
+
+        audioGarbageCollector.sweep();
+
+        assertThat(ttsService.audioFileExists(audioStorage.urlOf(filename))).isFalse();
+    }
+
+    // Más antiguo que el margen del recolector, que no toca ficheros recién escritos
+    private static void age(Path file) throws Exception {
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofDays(1))));
+    }
+}
@@ -0,0 +1,89 @@
+package com.ttsapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofMillis(50);
+
+    private final CircuitBreaker breaker = new CircuitBreaker(2, OPEN_DURATION);
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.getOpenings()).isEqualTo(1);
+    }
+
+    @Test
+    void letsOneTrialThroughOnceTheOpenDurationHasPassed() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_DURATION.toMillis() + 10);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        breaker.onSuccess();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void failedTrialReopens() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_DURATION.toMillis() + 10);
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void abandonedTrialAllowsAnotherRightAway() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_DURATION.toMillis() + 10);
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        breaker.onAbandoned();
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    }
+
+    @Test
+    void silentTrialIsReplacedAfterTheOpenDuration() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_DURATION.toMillis() + 10);
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        // La prueba nunca informa: pasado el plazo se admite otra en su lugar
+        Thread.sleep(OPEN_DURATION.toMillis() + 10);
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void abandonedCallsDoNotAffectAClosedCircuit() {
+        breaker.onAbandoned();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    private void open() {
+        breaker.onFailure();
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+}
@@ -0,0 +1,100 @@
+package com.ttsapp.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 32;
+
+    private final SingleFlight<String> flights = new SingleFlight<>();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void concurrentIdenticalCallsRunTheWorkOnce() throws Exception {
+        List<String> results = callConcurrently(i -> "same");
+
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(results).hasSize(CALLERS).containsOnly("result-1");
+        assertThat(flights.getExecutions()).isEqualTo(1);
+        assertThat(flights.getCoalesced()).isEqualTo(CALLERS - 1);
+        assertThat(flights.getInFlight()).isZero();
+    }
+
+    @Test
+    void differentKeysRunSeparately() throws Exception {
+        callConcurrently(i -> "key-" + (i % 4));
+
+        assertThat(calls.get()).isEqualTo(4);
+    }
+
+    @Test
+    void keyIsReleasedOnceTheWorkFinishes() {
+        assertThat(flights.execute("key", this::slowWork).block()).isEqualTo("result-1");
+        assertThat(flights.execute("key", this::slowWork).block()).isEqualTo("result-2");
+        assertThat(flights.getInFlight()).isZero();
+    }
+
+    @Test
+    void errorsReachEveryWaitingCaller() {
+        Mono<String> failing = Mono.<String>error(new IllegalStateException("upstream down"))
+                .delaySubscription(Duration.ofMillis(100));
+        Mono<String> first = flights.execute("key", () -> failing);
+        Mono<String> second = flights.execute("key", () -> Mono.just("unused"));
+
+        first.subscribe(result -> { }, error -> { });
+        assertThatThrownBy(second::block).hasMessageContaining("upstream down");
+        assertThat(flights.getInFlight()).isZero();
+    }
+
+    @Test
+    void cancellingOneCallerDoesNotCancelTheOthers() {
+        Mono<String> shared = flights.execute("key", this::slowWork);
+        shared.subscribe().dispose();
+
+        assertThat(flights.execute("key", this::slowWork).block()).isEqualTo("result-1");
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    private Mono<String> slowWork() {
+        return Mono.fromSupplier(() -> "result-" + calls.incrementAndGet())
+                .delaySubscription(Duration.ofMillis(200));
+    }
+
+    private List<String> callConcurrently(IntFunction<String> keys) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                String key = keys.apply(i);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return flights.execute(key, this::slowWork).block();
+                }));
+            }
+            start.countDown();
+            List<String> results = new ArrayList<>();
+            for (Future<String> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ttsapp.service;
+
+import com.ttsapp.entity.StoredAudio;
+import com.ttsapp.entity.TextEntry;
+import com.ttsapp.repository.TextEntryRepository;
+import com.ttsapp.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * A job whose entry is edited while its audio is being generated leaves the edit alone
+ * and releases the audio it generated.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class SynthesisJobServiceTest {
+
+    private static final String VOICE = "es-ES-ElviraNeural";
+
+    @Autowired
+    private SynthesisJobService synthesisJobService;
+
+    @Autowired
+    private TextEntryRepository textEntryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @SpyBean
+    private SharedAudioService sharedAudioService;
+
+    @Test
+    void editDuringSynthesisWins() throws InterruptedException {
+        String content = "Texto del trabajo " + UUID.randomUUID();
+        String edited = "Texto editado " + UUID.randomUUID();
+        TextEntry entry = textEntryRepository.save(TextEntry.builder()
+                .title("Trabajo")
+                .content(content)
+                .voice(VOICE)
+                .user(userRepository.findByUsername("admin").orElseThrow())
+                .status(TextEntry.AudioStatus.PENDING)
+                .build());
+        AtomicReference<StoredAudio> generated = new AtomicReference<>();
+        doAnswer(invocation -> {
+            // La edición termina mientras el trabajo genera el audio del texto anterior
+            TextEntry current = textEntryRepository.findById(entry.getId()).orElseThrow();
+            current.setContent(edited);
+            current.setStatus(TextEntry.AudioStatus.COMPLETED);
+            textEntryRepository.save(current);
+            StoredAudio audio = (StoredAudio) invocation.callRealMethod();
+            generated.set(audio);
+            return audio;
+        }).when(sharedAudioService).obtain(anyString(), anyString(), any());
+
+        synthesisJobService.submit(entry.getId(), content, VOICE);
+
+        // El audio generado se suelta al descartarlo: su registro compartido desaparece
+        for (int i = 0; i < 100 && (generated.get() == null
+                || sharedAudioService.findAudioFile(generated.get().getAudioUrl()).isPresent()); i++) {
+            Thread.sleep(100);
+        }
+        assertThat(generated.get()).isNotNull();
+        assertThat(sharedAudioService.findAudioFile(generated.get().getAudioUrl())).isEmpty();
+        TextEntry saved = textEntryRepository.findById(entry.getId()).orElseThrow();
+        assertThat(saved.getContent()).isEqualTo(edited);
+        assertThat(saved.getStatus()).isEqualTo(TextEntry.AudioStatus.COMPLETED);
+        assertThat(saved.getAudioUrl()).isNull();
+    }
+}
@@ -0,0 +1,66 @@
+package com.ttsapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Throughput of {@link TextChunker} on large texts, and how many upstream requests it needs
+ * compared with cutting the text every 200 characters.
+ * Only runs on demand: {@code mvn test -Dtest=TextChunkerBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TextChunkerBenchmark {
+
+    private static final String[] WORDS = {"el", "audio", "de", "cada", "fragmento", "se", "pide", "al",
+            "servicio", "en", "paralelo", "y", "después", "se", "junta", "según", "el", "orden", "original",
+            "canción", "pequeño", "árbol", "acción", "información"};
+
+    @Test
+    void splitLargeTexts() {
+        TextChunker chunker = new TextChunker(200, 600, 100);
+        for (int size : new int[]{10_000, 100_000, 1_000_000, 10_000_000}) {
+            String text = generateText(size);
+            // Calentamiento para que el JIT compile el recorrido
+            for (int i = 0; i < 3; i++) {
+                chunker.split(text, "es");
+            }
+
+            int runs = Math.max(3, 20_000_000 / size);
+            long start = System.nanoTime();
+            List<TextChunker.Chunk> chunks = null;
+            for (int i = 0; i < runs; i++) {
+                chunks = chunker.split(text, "es");
+            }
+            double seconds = (System.nanoTime() - start) / 1e9 / runs;
+
+            int naiveRequests = (text.length() + 199) / 200;
+            System.out.printf("%,12d chars: %8.2f ms, %7.1f MB/s, %,8d chunks (lower bound, fixed 200-char cut: %,d)%n",
+                    size, seconds * 1000, size / seconds / 1e6, chunks.size(), naiveRequests);
+        }
+    }
+
+    private static String generateText(int size) {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder(size + 32);
+        int sentenceWords = 0;
+        int paragraphSentences = 0;
+        while (text.length() < size) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            text.append(sentenceWords == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            if (++sentenceWords >= 6 + random.nextInt(20)) {
+                text.append('.');
+                sentenceWords = 0;
+                if (++paragraphSentences >= 2 + random.nextInt(8)) {
+                    text.append("\n\n");
+                    paragraphSentences = 0;
+                    continue;
+                }
+            }
+            text.append(' ');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,155 @@
+package com.ttsapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TextChunkerTest {
+
+    private static final String SENTENCES = "Esta es la primera frase del texto. Aquí viene la segunda, algo más larga que la anterior. "
+            + "La tercera frase cierra el párrafo con unas cuantas palabras más para llenarlo. ";
+
+    private final TextChunker chunker = new TextChunker(100, 300, 50);
+
+    @Test
+    void shortTextFitsSingleRequest() {
+        assertThat(chunker.fitsSingleRequest("Hola mundo.")).isTrue();
+        assertThat(chunker.split("Hola mundo.", "es")).extracting(Object::toString).containsExactly("Hola mundo.");
+    }
+
+    @Test
+    void emptyTextHasNoChunks() {
+        assertThat(chunker.split("", "es")).isEmpty();
+        assertThat(chunker.split(null, "es")).isEmpty();
+        assertThat(chunker.split(" \n\n  ", "es")).isEmpty();
+    }
+
+    @Test
+    void chunksRespectMaxChars() {
+        String text = SENTENCES.repeat(20);
+        List<TextChunker.Chunk> chunks = chunker.split(text, "es");
+
+        assertThat(chunks).hasSizeGreaterThan(1);
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.length()).isLessThanOrEqualTo(100));
+        assertThat(joinWords(chunks)).isEqualTo(words(text));
+    }
+
+    @Test
+    void chunksEndAtSentenceBoundariesWhenSentencesFit() {
+        List<TextChunker.Chunk> chunks = chunker.split(SENTENCES.repeat(5), "es");
+
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.toString()).endsWith("."));
+    }
+
+    @Test
+    void chunksRespectEncodedLength() {
+        // Cada carácter acentuado ocupa 6 bytes codificados: el límite es la URL y no los caracteres
+        String text = "áéíóú ñ ".repeat(200);
+        TextChunker chunker = new TextChunker(200, 120, 50);
+
+        assertThat(chunker.fitsSingleRequest(text)).isFalse();
+        List<TextChunker.Chunk> chunks = chunker.split(text, "es");
+        assertThat(chunks).allSatisfy(chunk ->
+                assertThat(URLEncoder.encode(chunk.toString(), StandardCharsets.UTF_8).length()).isLessThanOrEqualTo(120));
+        assertThat(joinWords(chunks)).isEqualTo(words(text));
+    }
+
+    @Test
+    void encodedLengthMatchesUrlEncoder() {
+        String text = "Hola, ¿qué tal? 100% bien & más: 😀 ~ \"fin\"";
+
+        assertThat(TextChunker.encodedLength(text, 0, text.length()))
+                .isEqualTo(URLEncoder.encode(text, StandardCharsets.UTF_8).length());
+    }
+
+    @Test
+    void wordsAreNotSplitWhenTheyFit() {
+        // Una sola "frase" sin puntos, más larga que un fragmento
+        String text = "palabra ".repeat(60).trim();
+        List<TextChunker.Chunk> chunks = chunker.split(text, "es");
+
+        assertThat(chunks).hasSizeGreaterThan(1);
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.toString()).matches("palabra( palabra)*"));
+    }
+
+    @Test
+    void wordLongerThanChunkIsCutAtCodePoints() {
+        String longWord = "😀".repeat(120);
+        List<TextChunker.Chunk> chunks = chunker.split("Inicio " + longWord + " fin.", "es");
+
+        assertThat(chunks).allSatisfy(chunk -> {
+            assertThat(chunk.length()).isLessThanOrEqualTo(100);
+            // Nunca se parte un par sustituto
+            assertThat(Character.isLowSurrogate(chunk.charAt(0))).isFalse();
+            assertThat(Character.isHighSurrogate(chunk.charAt(chunk.length() - 1))).isFalse();
+        });
+        assertThat(String.join("", chunks.stream().map(Object::toString).toList()).replace(" ", ""))
+                .isEqualTo("Inicio" + longWord + "fin.");
+    }
+
+    @Test
+    void longParagraphsStartTheirOwnChunks() {
+        String first = "Primer párrafo largo con bastantes palabras para superar el mínimo de caracteres.";
+        String second = "Segundo párrafo, también largo, que debería ir en un fragmento aparte del primero.";
+        List<TextChunker.Chunk> chunks = chunker.split(first + "\n\n" + second, "es");
+
+        assertThat(chunks).extracting(Object::toString).containsExactly(first, second);
+    }
+
+    @Test
+    void shortParagraphsArePackedTogether() {
+        String text = "Capítulo uno\n\n—Hola.\n\n—Adiós.\n\nFin.";
+        List<TextChunker.Chunk> chunks = chunker.split(text, "es");
+
+        assertThat(chunks).extracting(Object::toString).containsExactly(text);
+    }
+
+    @Test
+    void editingOneLongParagraphKeepsTheOtherChunks() {
+        String first = "Primer párrafo largo con bastantes palabras para superar el mínimo de caracteres.";
+        String second = "Segundo párrafo, también largo, que debería ir en un fragmento aparte del primero.";
+        String edited = "Segundo párrafo editado, con otras palabras distintas pero igual de largo que antes.";
+
+        List<String> before = chunker.split(first + "\n\n" + second, "es").stream().map(Object::toString).toList();
+        List<String> after = chunker.split(first + "\n\n" + edited, "es").stream().map(Object::toString).toList();
+
+        assertThat(after.get(0)).isEqualTo(before.get(0));
+        assertThat(after.get(1)).isNotEqualTo(before.get(1));
+    }
+
+    @Test
+    void trailingShortParagraphIsKept() {
+        String text = SENTENCES.repeat(3) + "\n\nFin.";
+        List<TextChunker.Chunk> chunks = chunker.split(text, "es");
+
+        assertThat(chunks.get(chunks.size() - 1).toString()).endsWith("Fin.");
+    }
+
+    @Test
+    void chunksAreViewsOverTheText() {
+        String text = SENTENCES.repeat(5);
+        for (TextChunker.Chunk chunk : chunker.split(text, "es")) {
+            assertThat(chunk.source()).isSameAs(text);
+            assertThat(chunk.toString()).isEqualTo(text.substring(chunk.start(), chunk.end()));
+        }
+    }
+
+    @Test
+    void rejectsLimitsTooSmallForOneCodePoint() {
+        assertThatThrownBy(() -> new TextChunker(1, 600, 100)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TextChunker(200, 11, 100)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<String> words(String text) {
+        return List.of(text.trim().split("\\s+"));
+    }
+
+    private static List<String> joinWords(List<TextChunker.Chunk> chunks) {
+        return words(String.join(" ", chunks.stream().map(Object::toString).toList()));
+    }
+}
@@ -0,0 +1,78 @@
+package com.ttsapp.service;
+
+import com.ttsapp.dto.TextEntryBatchResult;
+import com.ttsapp.dto.TextEntryRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.verify;
+
+/**
+ * A batch is charged only for the characters it sends to the TTS service, and every item
+ * ends with its own audio.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class TextEntryBatchServiceTest {
+
+    private static final String VOICE = "es-ES-ElviraNeural";
+
+    @Autowired
+    private TextEntryBatchService textEntryBatchService;
+
+    @Autowired
+    private TtsService ttsService;
+
+    @SpyBean
+    private UserCharacterQuota userCharacterQuota;
+
+    @BeforeEach
+    void authenticate() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "admin", null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void sharedAndRepeatedTextsAreNotCharged() {
+        String shared = "Texto que ya tiene audio " + UUID.randomUUID();
+        String repeated = "Texto repetido dentro del lote " + UUID.randomUUID();
+        textEntryBatchService.createTextEntries(List.of(request(shared)));
+        clearInvocations(userCharacterQuota);
+
+        List<TextEntryBatchResult> results = textEntryBatchService.createTextEntries(
+                List.of(request(shared), request(repeated), request(repeated)));
+
+        verify(userCharacterQuota).acquire(ttsService.charactersToSynthesize(repeated, VOICE, null));
+        assertThat(results).allSatisfy(result -> {
+            assertThat(result.getError()).isNull();
+            assertThat(result.getEntry().getStatus()).isEqualTo("COMPLETED");
+        });
+        assertThat(results.get(1).getEntry().getAudioUrl()).isEqualTo(results.get(2).getEntry().getAudioUrl());
+    }
+
+    private static TextEntryRequest request(String content) {
+        TextEntryRequest request = new TextEntryRequest();
+        request.setTitle("Lote");
+        request.setContent(content);
+        request.setVoice(VOICE);
+        return request;
+    }
+}
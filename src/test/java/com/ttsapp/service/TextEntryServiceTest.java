@@ -0,0 +1,101 @@
+package com.ttsapp.service;
+
+import com.ttsapp.dto.TextEntryRequest;
+import com.ttsapp.dto.TextEntryResponse;
+import com.ttsapp.entity.TextEntry;
+import com.ttsapp.repository.TextEntryRepository;
+import com.ttsapp.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Saving an entry again is charged exactly when it synthesizes audio.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class TextEntryServiceTest {
+
+    private static final String VOICE = "es-ES-ElviraNeural";
+
+    @Autowired
+    private TextEntryService textEntryService;
+
+    @Autowired
+    private TextEntryRepository textEntryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TtsService ttsService;
+
+    @SpyBean
+    private UserCharacterQuota userCharacterQuota;
+
+    @BeforeEach
+    void authenticate() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "admin", null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void unchangedEntryWithAudioIsNotSynthesizedAgain() {
+        String content = "Texto con audio " + UUID.randomUUID();
+        TextEntryResponse created = textEntryService.createTextEntry(request("Título", content));
+        clearInvocations(userCharacterQuota);
+
+        TextEntryResponse updated = textEntryService.updateTextEntry(created.getId(), request("Otro título", content));
+
+        verify(userCharacterQuota, never()).acquire(anyInt());
+        assertThat(updated.getTitle()).isEqualTo("Otro título");
+        assertThat(updated.getAudioUrl()).isEqualTo(created.getAudioUrl());
+    }
+
+    @Test
+    void unchangedFailedEntryIsCharged() {
+        String content = "Texto que falló " + UUID.randomUUID();
+        TextEntry failed = textEntryRepository.save(TextEntry.builder()
+                .title("Título")
+                .content(content)
+                .voice(VOICE)
+                .user(userRepository.findByUsername("admin").orElseThrow())
+                .status(TextEntry.AudioStatus.FAILED)
+                .build());
+
+        TextEntryResponse updated = textEntryService.updateTextEntry(failed.getId(), request("Título", content));
+
+        verify(userCharacterQuota).acquire(ttsService.charactersToSynthesize(content, VOICE, null));
+        assertThat(updated.getStatus()).isEqualTo("COMPLETED");
+        assertThat(ttsService.audioFileExists(updated.getAudioUrl())).isTrue();
+    }
+
+    private static TextEntryRequest request(String title, String content) {
+        TextEntryRequest request = new TextEntryRequest();
+        request.setTitle(title);
+        request.setContent(content);
+        request.setVoice(VOICE);
+        return request;
+    }
+}
@@ -0,0 +1,113 @@
+package com.ttsapp.service;
+
+import com.ttsapp.service.engine.StubTtsEngine;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Chunks of a long text are requested in parallel and joined in text order,
+ * whatever order their audio arrives in.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class TtsServiceChunkParallelismTest {
+
+    private static final String VOICE = "es-ES-ElviraNeural";
+    private static final Pattern SENTENCE_NUMBER = Pattern.compile("número (\\d+)");
+    // Cabecera de trama MPEG-1 Layer III, 128 kbps, 44,1 kHz, mono, y su longitud
+    private static final byte[] FRAME_HEADER = {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, (byte) 0xC0};
+    private static final int FRAME_LENGTH = 417;
+    // Posición dentro de la trama donde se marca el número de frase, lejos de la cabecera Xing
+    private static final int MARKER_OFFSET = 200;
+
+    @Autowired
+    private TtsService ttsService;
+
+    @Autowired
+    private TextChunker textChunker;
+
+    @SpyBean
+    private StubTtsEngine ttsEngine;
+
+    @Value("${tts.stub.latency-ms}")
+    private long latencyMs;
+
+    @Test
+    void chunksAreRequestedInParallel() {
+        String text = document(8);
+        assertThat(textChunker.split(text, "es")).hasSize(8);
+
+        long start = System.nanoTime();
+        byte[] audio = ttsService.generateAudio(text, VOICE);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(audio).isNotEmpty();
+        // De uno en uno serían 8 latencias; con 4 en paralelo, unas 2 más la espera del limitador
+        assertThat(elapsedMs).isLessThan(8 * latencyMs * 3 / 4);
+    }
+
+    @Test
+    void chunksAreJoinedInTextOrder() {
+        // Cada fragmento tarda menos que el anterior, así que llegan en orden inverso
+        doAnswer(invocation -> {
+            int sentence = sentenceNumber(invocation.getArgument(0));
+            return Mono.fromSupplier(() -> markedAudio(sentence))
+                    .delaySubscription(Duration.ofMillis((10 - sentence) * 40L));
+        }).when(ttsEngine).synthesize(anyString(), anyString(), anyString());
+
+        byte[] audio = ttsService.generateAudio(document(8), VOICE);
+
+        List<Integer> markers = new ArrayList<>();
+        for (ByteBuffer run : Mp3FrameJoiner.extractFrames(audio).runs()) {
+            for (int frame = run.position(); frame < run.limit(); frame += FRAME_LENGTH) {
+                markers.add((int) run.get(frame + MARKER_OFFSET));
+            }
+        }
+        assertThat(markers).isSorted();
+        assertThat(markers.stream().distinct()).containsExactly(1, 2, 3, 4, 5, 6, 7, 8);
+    }
+
+    // Frases de unos 150 caracteres: cada una ocupa un fragmento propio
+    static String document(int sentences) {
+        String id = UUID.randomUUID().toString();
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= sentences; i++) {
+            text.append("Frase número ").append(i)
+                    .append(" de un documento largo, escrita para ocupar casi un fragmento entero del servicio TTS, ")
+                    .append(id).append(". ");
+        }
+        return text.toString();
+    }
+
+    private static int sentenceNumber(String chunk) {
+        Matcher matcher = SENTENCE_NUMBER.matcher(chunk);
+        assertThat(matcher.find()).isTrue();
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    private static byte[] markedAudio(int sentence) {
+        byte[] audio = new byte[10 * FRAME_LENGTH];
+        for (int frame = 0; frame < audio.length; frame += FRAME_LENGTH) {
+            System.arraycopy(FRAME_HEADER, 0, audio, frame, FRAME_HEADER.length);
+            audio[frame + MARKER_OFFSET] = (byte) sentence;
+        }
+        return audio;
+    }
+}
@@ -0,0 +1,44 @@
+package com.ttsapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * End-to-end latency of a long text against its number of chunks, with the stub engine.
+ * Only runs on demand; compare parallelism settings with e.g.
+ * {@code mvn test -Dtest=TtsServiceLatencyBenchmark -Dbenchmark=true -Dtts.chunk.parallelism=1}
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TtsServiceLatencyBenchmark {
+
+    private static final String VOICE = "es-ES-ElviraNeural";
+
+    @Autowired
+    private TtsService ttsService;
+
+    @Value("${tts.chunk.parallelism}")
+    private int parallelism;
+
+    @Value("${tts.stub.latency-ms}")
+    private long latencyMs;
+
+    @Test
+    void latencyByChunkCount() {
+        System.out.printf("parallelism %d, upstream latency %d ms%n", parallelism, latencyMs);
+        for (int chunks : new int[]{1, 2, 4, 8, 16, 32, 64}) {
+            // Textos nuevos en cada medida: nada sale de la caché de fragmentos
+            String text = TtsServiceChunkParallelismTest.document(chunks);
+            long start = System.nanoTime();
+            byte[] audio = ttsService.generateAudio(text, VOICE);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            System.out.printf("%4d chunks: %6d ms (sequential estimate %6d ms), %,d bytes%n",
+                    chunks, elapsedMs, chunks * latencyMs, audio.length);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.ttsapp.service;
+
+import com.ttsapp.service.engine.StubTtsEngine;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Identical syntheses requested at the same time reach the TTS engine only once,
+ * for whole texts and for each chunk of a long text.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class TtsServiceSingleFlightTest {
+
+    private static final String VOICE = "es-ES-ElviraNeural";
+    private static final int CALLERS = 16;
+
+    @Autowired
+    private TtsService ttsService;
+
+    @Autowired
+    private TextChunker textChunker;
+
+    @SpyBean
+    private StubTtsEngine ttsEngine;
+
+    @Test
+    void concurrentIdenticalTextsCallUpstreamOnce() throws Exception {
+        // Texto único en cada ejecución para no acertar en la caché de fragmentos en disco
+        String text = "Texto muy solicitado " + UUID.randomUUID();
+
+        List<byte[]> results = generateConcurrently(text);
+
+        verify(ttsEngine, times(1)).synthesize(eq(text), anyString(), anyString());
+        assertThat(results).allSatisfy(audio -> assertThat(audio).isEqualTo(results.get(0)));
+    }
+
+    @Test
+    void concurrentIdenticalLongTextsCallUpstreamOncePerChunk() throws Exception {
+        String id = UUID.randomUUID().toString();
+        StringBuilder document = new StringBuilder();
+        for (int i = 1; i <= 10; i++) {
+            document.append("Frase número ").append(i).append(" de un documento largo pedido varias veces a la vez, ")
+                    .append(id).append(". ");
+        }
+        String text = document.toString();
+        int chunks = textChunker.split(text, "es").size();
+        assertThat(chunks).isGreaterThan(1);
+
+        List<byte[]> results = generateConcurrently(text);
+
+        verify(ttsEngine, times(chunks)).synthesize(anyString(), any(), any());
+        assertThat(results).allSatisfy(audio -> assertThat(audio).isEqualTo(results.get(0)));
+    }
+
+    private List<byte[]> generateConcurrently(String text) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<byte[]>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return ttsService.generateAudio(text, VOICE);
+                }));
+            }
+            start.countDown();
+            List<byte[]> results = new ArrayList<>();
+            for (Future<byte[]> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.ttsapp.service;
+
+import com.ttsapp.exception.UpstreamUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Whatever the trial call through a half-open circuit ends with, the circuit leaves
+ * half-open and upstream calls are possible again.
+ */
+class UpstreamCallPolicyTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofMillis(50);
+
+    private final UpstreamRateLimiter limiter = new UpstreamRateLimiter(false, 10, 0.5, 50, 4, 0.2, Duration.ofMillis(1500));
+    // Sin reintentos ni duplicados, con el circuito abriéndose al primer fallo
+    private final UpstreamCallPolicy policy = new UpstreamCallPolicy(limiter, 0, Duration.ofMillis(10),
+            Duration.ofMillis(10), Duration.ofSeconds(5), false, 95, Duration.ofMillis(100), 20, 1, OPEN_DURATION);
+
+    @Test
+    void nonRetryableTrialClosesTheCircuit() throws InterruptedException {
+        openCircuit();
+
+        // El servicio responde 400: no es culpa suya, así que está disponible
+        assertThatThrownBy(() -> call(Mono.error(WebClientResponseException.create(
+                HttpStatus.BAD_REQUEST.value(), "Bad Request", null, null, null)))).isInstanceOf(WebClientResponseException.class);
+
+        assertThat(circuitState()).isEqualTo("CLOSED");
+        assertThat(call(Mono.just(new byte[]{1}))).hasSize(1);
+    }
+
+    @Test
+    void emptyTrialReopensTheCircuit() throws InterruptedException {
+        openCircuit();
+
+        assertThatThrownBy(() -> call(Mono.empty())).hasMessageContaining("Empty audio");
+
+        assertThat(circuitState()).isEqualTo("OPEN");
+        Thread.sleep(OPEN_DURATION.toMillis() + 10);
+        assertThat(call(Mono.just(new byte[]{1}))).hasSize(1);
+        assertThat(circuitState()).isEqualTo("CLOSED");
+    }
+
+    @Test
+    void trialFailingBeforeReachingUpstreamAllowsAnotherTrial() throws InterruptedException {
+        openCircuit();
+
+        assertThatThrownBy(() -> call(Mono.error(new IllegalStateException("bug before sending"))))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(circuitState()).isNotEqualTo("HALF_OPEN");
+        assertThat(call(Mono.just(new byte[]{1}))).hasSize(1);
+        assertThat(circuitState()).isEqualTo("CLOSED");
+    }
+
+    @Test
+    void cancelledTrialAllowsAnotherTrial() throws InterruptedException {
+        openCircuit();
+
+        policy.execute(Mono::never).subscribe().dispose();
+
+        assertThat(circuitState()).isNotEqualTo("HALF_OPEN");
+        assertThat(call(Mono.just(new byte[]{1}))).hasSize(1);
+    }
+
+    private void openCircuit() throws InterruptedException {
+        assertThatThrownBy(() -> call(Mono.error(new TimeoutException()))).hasCauseInstanceOf(TimeoutException.class);
+        assertThat(circuitState()).isEqualTo("OPEN");
+        assertThatThrownBy(() -> call(Mono.just(new byte[]{1}))).isInstanceOf(UpstreamUnavailableException.class);
+        Thread.sleep(OPEN_DURATION.toMillis() + 10);
+    }
+
+    private byte[] call(Mono<byte[]> response) {
+        return policy.execute(() -> response).block();
+    }
+
+    private String circuitState() {
+        return (String) policy.getStats().get("circuitState");
+    }
+}